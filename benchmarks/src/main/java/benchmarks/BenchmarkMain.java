@@ -0,0 +1,30 @@
+package benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks and writes the results as JSON, by default to
+ * jmh-results.json, so runs before and after a change can be compared.
+ * <p>
+ * Build with {@code mvn -pl benchmarks -am package -DskipTests}, then run
+ * {@code java -jar benchmarks/target/benchmarks.jar}. Any standard JMH options
+ * work, e.g. {@code ChessGameBenchmark -rff before.json} to run one suite into
+ * a named file.
+ */
+public class BenchmarkMain {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        Options options = new OptionsBuilder()
+                .parent(commandLine)
+                .resultFormat(commandLine.getResultFormat().orElse(ResultFormatType.JSON))
+                .result(commandLine.getResult().orElse("jmh-results.json"))
+                .build();
+        new Runner(options).run();
+    }
+}
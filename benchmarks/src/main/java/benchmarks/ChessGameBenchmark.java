@@ -0,0 +1,103 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.Search;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ChessGame calls the server makes for every move: validating it, playing
+ * it, and asking whether the side to move is mated or stalemated.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ChessGameBenchmark {
+    private ChessGame start;
+    private ChessGame middlegame;
+    private ChessGame checkmate;
+    private ChessGame stalemate;
+    private Search search;
+
+    @Setup
+    public void setUp() {
+        start = new ChessGame();
+        middlegame = Positions.middlegame();
+        checkmate = Positions.foolsMate();
+        stalemate = Positions.stalemate();
+        search = new Search();
+    }
+
+    @Benchmark
+    public void validMovesStart(Blackhole blackhole) {
+        allValidMoves(start, blackhole);
+    }
+
+    @Benchmark
+    public void validMovesMiddlegame(Blackhole blackhole) {
+        allValidMoves(middlegame, blackhole);
+    }
+
+    // Every validMoves call a client makes to highlight each of its pieces' moves
+    private static void allValidMoves(ChessGame game, Blackhole blackhole) {
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition position = ChessPosition.of(row, col);
+                if (game.getBoard().getPiece(position) != null) {
+                    Collection<ChessMove> moves = game.validMoves(position);
+                    blackhole.consume(moves);
+                }
+            }
+        }
+    }
+
+    /**
+     * Plays the twelve plies of the opening line through makeMove on a new game,
+     * so this includes ChessGame construction
+     */
+    @Benchmark
+    public ChessGame makeMoveOpening() {
+        return Positions.middlegame();
+    }
+
+    @Benchmark
+    public boolean isInCheckmateMated() {
+        return checkmate.isInCheckmate(ChessGame.TeamColor.WHITE);
+    }
+
+    // In check but not mated: has to find an escape
+    @Benchmark
+    public boolean isInCheckmateInCheck() {
+        return middlegame.isInCheckmate(ChessGame.TeamColor.WHITE);
+    }
+
+    @Benchmark
+    public boolean isInStalemateStalemated() {
+        return stalemate.isInStalemate(ChessGame.TeamColor.BLACK);
+    }
+
+    @Benchmark
+    public boolean isInStalemateStart() {
+        return start.isInStalemate(ChessGame.TeamColor.WHITE);
+    }
+
+    // The one call the server makes after every move
+    @Benchmark
+    public ChessGame.GameStatus gameStatusMiddlegame() {
+        return middlegame.getGameStatus(middlegame.getTeamTurn());
+    }
+
+    // What one bot move costs at a fixed depth
+    @Benchmark
+    public Search.Result searchMiddlegameDepth5() {
+        return search.search(middlegame, Search.Limits.ofDepth(5));
+    }
+}
@@ -0,0 +1,67 @@
+package benchmarks;
+
+import dataaccess.DatabaseManager;
+import dataaccess.GameDaoInterface;
+import dataaccess.MemoryGameDao;
+import dataaccess.SqlGameDao;
+import model.GameData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Game DAO operations. Only the in-memory DAO runs by default; add
+ * {@code -p dao=memory,sql} to include SqlGameDao, which needs the database
+ * from db.properties to be reachable.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameDaoBenchmark {
+    private static final int GAMES = 50;
+
+    @Param({"memory"})
+    public String dao;
+
+    private GameDaoInterface gameDao;
+    private int gameID;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        if (dao.equals("sql")) {
+            DatabaseManager.createDatabase();
+            DatabaseManager.initializeDatabase();
+            gameDao = new SqlGameDao();
+        } else {
+            gameDao = new MemoryGameDao();
+        }
+        gameDao.clearGames();
+        for (int i = 0; i < GAMES; i++) {
+            gameID = gameDao.insertGame("benchmark " + i);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        gameDao.clearGames();
+    }
+
+    @Benchmark
+    public int insertGame() {
+        return gameDao.insertGame("benchmark");
+    }
+
+    @Benchmark
+    public GameData getGame() {
+        return gameDao.getGame(gameID);
+    }
+
+    @Benchmark
+    public List<GameData> listGames() {
+        return gameDao.listGames();
+    }
+}
@@ -0,0 +1,69 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.GameCodec;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The round trip SqlGameDao does every time it saves or loads a game, in both
+ * its JSON, FEN and binary state formats.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GsonBenchmark {
+    private final Gson gson = new Gson();
+    private ChessGame game;
+    private String json;
+    private String fen;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        game = Positions.middlegame();
+        json = gson.toJson(game);
+        fen = game.toFen();
+        encoded = GameCodec.encode(game);
+    }
+
+    @Benchmark
+    public String toJson() {
+        return gson.toJson(game);
+    }
+
+    @Benchmark
+    public ChessGame fromJson() {
+        return gson.fromJson(json, ChessGame.class);
+    }
+
+    @Benchmark
+    public ChessGame roundTrip() {
+        return gson.fromJson(gson.toJson(game), ChessGame.class);
+    }
+
+    @Benchmark
+    public String toFen() {
+        return game.toFen();
+    }
+
+    @Benchmark
+    public ChessGame fromFen() {
+        return ChessGame.fromFen(fen);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return GameCodec.encode(game);
+    }
+
+    @Benchmark
+    public ChessGame decode() {
+        return GameCodec.decode(encoded);
+    }
+}
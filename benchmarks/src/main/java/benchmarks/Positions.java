@@ -0,0 +1,70 @@
+package benchmarks;
+
+import chess.*;
+
+/**
+ * Games the benchmarks share, built through the public ChessGame API so they
+ * measure exactly what the server calls.
+ */
+final class Positions {
+    // An Italian Game line: 1.e4 e5 2.Nf3 Nc6 3.Bc4 Bc5 4.c3 Nf6 5.d4 exd4 6.cxd4 Bb4+
+    static final int[][] OPENING = {
+            {2, 5, 4, 5}, {7, 5, 5, 5}, {1, 7, 3, 6}, {8, 2, 6, 3}, {1, 6, 4, 3}, {8, 6, 5, 3},
+            {2, 3, 3, 3}, {8, 7, 6, 6}, {2, 4, 4, 4}, {5, 5, 4, 4}, {3, 3, 4, 4}, {5, 3, 4, 2},
+    };
+
+    private Positions() {
+    }
+
+    /**
+     * @return a fresh game with the opening line played, white to move and in check
+     */
+    static ChessGame middlegame() {
+        return play(OPENING.length);
+    }
+
+    /**
+     * @return a fresh game with the first plies of the opening line played
+     */
+    static ChessGame play(int plies) {
+        ChessGame game = new ChessGame();
+        for (int i = 0; i < plies; i++) {
+            makeMove(game, OPENING[i]);
+        }
+        return game;
+    }
+
+    /**
+     * @return 1.f3 e5 2.g4 Qh4#, white to move and checkmated
+     */
+    static ChessGame foolsMate() {
+        ChessGame game = new ChessGame();
+        makeMove(game, new int[]{2, 6, 3, 6});
+        makeMove(game, new int[]{7, 5, 5, 5});
+        makeMove(game, new int[]{2, 7, 4, 7});
+        makeMove(game, new int[]{8, 4, 4, 8});
+        return game;
+    }
+
+    /**
+     * @return black king a8 against white queen b6 and king c6, black to move and stalemated
+     */
+    static ChessGame stalemate() {
+        ChessBoard board = new ChessBoard();
+        board.addPiece(ChessPosition.of(8, 1), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        board.addPiece(ChessPosition.of(6, 2), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+        board.addPiece(ChessPosition.of(6, 3), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        return game;
+    }
+
+    private static void makeMove(ChessGame game, int[] move) {
+        try {
+            game.makeMove(new ChessMove(ChessPosition.of(move[0], move[1]), ChessPosition.of(move[2], move[3]), null));
+        } catch (InvalidMoveException e) {
+            throw new IllegalStateException("Benchmark opening line is not legal", e);
+        }
+    }
+}
@@ -106,6 +106,6 @@ public class ChessBoard {
     private static ChessPiece getPiece(int row, int col, boolean whitePerspective) {
         int adjustedRow = whitePerspective ? 9 - row : row;
         int adjustedCol = whitePerspective ? col : 9 - col;
-        return board.getPiece(new ChessPosition(adjustedRow, adjustedCol));
+        return board.getPiece(ChessPosition.of(adjustedRow, adjustedCol));
     }
 }
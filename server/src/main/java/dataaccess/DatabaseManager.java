@@ -88,7 +88,8 @@ public class DatabaseManager {
                     "game_name VARCHAR(255) NOT NULL," +
                     "white_username VARCHAR(255)," +
                     "black_username VARCHAR(255)," +
-                    "state TEXT NOT NULL," +
+                    "state TEXT," +
+                    "state_blob BLOB," +
                     "last_updated TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP" +
                     ")";
             //String dropAuthTokensTable = "DROP TABLE IF EXISTS auth_tokens";
@@ -99,10 +100,21 @@ public class DatabaseManager {
 
             stmt.execute(createUsersTable);
             stmt.execute(createGamesTable);
+            addBinaryStateColumn(conn, stmt);
             //stmt.execute(dropAuthTokensTable);
             stmt.execute(createAuthTokensTable);
         } catch (DataAccessException e) {
             throw new RuntimeException(e);
         }
     }
+
+    // Games tables created before binary state existed need the column, and text state can now be empty
+    private static void addBinaryStateColumn(Connection conn, Statement stmt) throws SQLException {
+        try (ResultSet columns = conn.getMetaData().getColumns(DATABASE_NAME, null, "games", "state_blob")) {
+            if (columns.next()) {
+                return;
+            }
+        }
+        stmt.execute("ALTER TABLE games MODIFY state TEXT, ADD COLUMN state_blob BLOB");
+    }
 }
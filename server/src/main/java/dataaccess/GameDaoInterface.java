@@ -6,6 +6,8 @@ import java.util.List;
 
 public interface GameDaoInterface {
     int insertGame(String gameName);
+    // Stores finished or in-progress games as new rows; the IDs they carry are ignored
+    void insertGames(List<GameData> games);
     GameData getGame(int gameID);
     List<GameData> listGames();
     boolean joinGame(int gameID, String username, String playerColor);
@@ -20,6 +20,14 @@ public class MemoryGameDao implements GameDaoInterface {
         return gameID;
     }
 
+    @Override
+    public synchronized void insertGames(List<GameData> newGames) {
+        for (GameData game : newGames) {
+            int gameID = gameIDCounter.incrementAndGet();
+            games.put(gameID, new GameData(gameID, game.getWhiteUsername(), game.getBlackUsername(), game.getGameName(), game.getGame()));
+        }
+    }
+
     @Override
     public GameData getGame(int gameID) {
         return games.get(gameID);
@@ -1,25 +1,112 @@
 package dataaccess;
 
 import chess.ChessGame;
+import chess.GameCodec;
+import chess.Pgn;
 import com.google.gson.Gson;
 import model.GameData;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 public class SqlGameDao implements GameDaoInterface {
-    private final Gson gson = new Gson();
+    /**
+     * How a game's state is written to the games table
+     */
+    public enum StateFormat {
+        /**
+         * The whole ChessGame object as Gson JSON. Keeps the move history, but
+         * not the positions behind it, so repetitions start counting afresh
+         */
+        JSON,
+        /**
+         * A single FEN line, well under 100 characters. The position only: a
+         * loaded game has no move history, can't be exported to PGN with its
+         * moves, and counts repetitions afresh
+         */
+        FEN,
+        /** GameCodec bytes in the state_blob column, about 30 bytes; loses what FEN loses */
+        BINARY,
+        /**
+         * PGN from the start position with the full move history, so a loaded
+         * game still knows every earlier position for threefold repetition and
+         * exports to PGN unchanged. A game whose position was edited after its
+         * moves is saved as FEN instead, since the moves no longer lead to it
+         */
+        PGN
+    }
+
+    /**
+     * What SqlGameDao() saves games as: PGN, so games survive a save and load
+     * with their history
+     */
+    static final StateFormat DEFAULT_STATE_FORMAT = StateFormat.PGN;
+
+    private static final Gson GSON = new Gson();
+    private final StateFormat stateFormat;
+
+    public SqlGameDao() {
+        this(DEFAULT_STATE_FORMAT);
+    }
+
+    public SqlGameDao(StateFormat stateFormat) {
+        this.stateFormat = stateFormat;
+    }
+
+    // Binary state goes in state_blob and leaves the text column empty, and the other way round
+    private void bindState(PreparedStatement stmt, int textIndex, int blobIndex, ChessGame chessGame) throws SQLException {
+        stmt.setString(textIndex, stateText(chessGame, stateFormat));
+        stmt.setBytes(blobIndex, stateFormat == StateFormat.BINARY ? GameCodec.encode(chessGame) : null);
+    }
+
+    /**
+     * @return the state column's text for the game, or null for BINARY
+     */
+    static String stateText(ChessGame chessGame, StateFormat format) {
+        return switch (format) {
+            case JSON -> GSON.toJson(chessGame);
+            case FEN -> chessGame.toFen();
+            case BINARY -> null;
+            case PGN -> chessGame.isHistoryReplayable() ? Pgn.export(chessGame, Map.of()) : chessGame.toFen();
+        };
+    }
+
+    // Rows written in any format can be read back, so switching formats needs no migration
+    private ChessGame readState(ResultSet rs) throws SQLException, DataAccessException {
+        return parseState(rs.getBytes("state_blob"), rs.getString("state"));
+    }
+
+    /**
+     * @param bytes the state_blob column, or null
+     * @param state the state column, or null
+     * @throws DataAccessException if the row has no state in either column
+     */
+    static ChessGame parseState(byte[] bytes, String state) throws DataAccessException {
+        if (bytes != null) {
+            return GameCodec.decode(bytes);
+        }
+        // state became nullable when binary state was added, so a damaged row can have neither
+        if (state == null || state.isBlank()) {
+            throw new DataAccessException("Game row has no saved state");
+        }
+        String trimmed = state.strip();
+        return switch (trimmed.charAt(0)) {
+            case '{' -> GSON.fromJson(trimmed, ChessGame.class);
+            case '[' -> Pgn.parse(trimmed);
+            default -> ChessGame.fromFen(trimmed);
+        };
+    }
 
     @Override
     public int insertGame(String gameName) {
-        String sql = "INSERT INTO games (game_name, state) VALUES (?, ?)";
+        String sql = "INSERT INTO games (game_name, state, state_blob) VALUES (?, ?, ?)";
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             ChessGame chessGame = new ChessGame();
-            String state = gson.toJson(chessGame);
             stmt.setString(1, gameName);
-            stmt.setString(2, state);
+            bindState(stmt, 2, 3, chessGame);
             stmt.executeUpdate();
 
             try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
@@ -37,6 +124,31 @@ public class SqlGameDao implements GameDaoInterface {
         }
     }
 
+    @Override
+    public void insertGames(List<GameData> games) {
+        String sql = "INSERT INTO games (game_name, white_username, black_username, state, state_blob) VALUES (?, ?, ?, ?, ?)";
+        try (Connection conn = DatabaseManager.getConnection()) {
+            // One transaction and one round trip per batch instead of per game
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (GameData game : games) {
+                    stmt.setString(1, game.getGameName());
+                    stmt.setString(2, game.getWhiteUsername());
+                    stmt.setString(3, game.getBlackUsername());
+                    bindState(stmt, 4, 5, game.getGame());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException | DataAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     @Override
     public GameData getGame(int gameID) {
         String sql = "SELECT * FROM games WHERE id = ?";
@@ -48,8 +160,7 @@ public class SqlGameDao implements GameDaoInterface {
                     String gameName = rs.getString("game_name");
                     String whiteUsername = rs.getString("white_username");
                     String blackUsername = rs.getString("black_username");
-                    String state = rs.getString("state");
-                    ChessGame chessGame = gson.fromJson(state, ChessGame.class);
+                    ChessGame chessGame = readState(rs);
                     return new GameData(gameID, whiteUsername, blackUsername, gameName, chessGame);
                 }
             }
@@ -71,8 +182,7 @@ public class SqlGameDao implements GameDaoInterface {
                 String gameName = rs.getString("game_name");
                 String whiteUsername = rs.getString("white_username");
                 String blackUsername = rs.getString("black_username");
-                String state = rs.getString("state");
-                ChessGame chessGame = gson.fromJson(state, ChessGame.class);
+                ChessGame chessGame = readState(rs);
                 games.add(new GameData(gameID, whiteUsername, blackUsername, gameName, chessGame));
             }
         } catch (SQLException | DataAccessException e) {
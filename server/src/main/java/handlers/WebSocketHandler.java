@@ -1,5 +1,10 @@
 package handlers;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import dataaccess.AuthTokenDaoInterface;
+import dataaccess.GameDaoInterface;
+import model.GameData;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketClose;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketConnect;
@@ -8,8 +13,19 @@ import org.eclipse.jetty.websocket.api.annotations.WebSocket;
 import websocket.commands.UserGameCommand;
 import websocket.messages.ServerMessage;
 
+import java.io.IOException;
+
 @WebSocket
 public class WebSocketHandler {
+    private final GameDaoInterface gameDao;
+    private final AuthTokenDaoInterface authTokenDao;
+    private final Gson gson = new Gson();
+
+    public WebSocketHandler(GameDaoInterface gameDao, AuthTokenDaoInterface authTokenDao) {
+        this.gameDao = gameDao;
+        this.authTokenDao = authTokenDao;
+    }
+
     @OnWebSocketConnect
     public void onConnect(Session session) {
         System.out.println("Connected: " + session.getRemoteAddress().getAddress());
@@ -20,7 +36,7 @@ public class WebSocketHandler {
         // Handle incoming messages (deserialize UserGameCommand)
         UserGameCommand command = deserializeUserGameCommand(message);
         if (command != null) {
-            handleUserGameCommand(session, command);
+            handleUserGameCommand(session, command, message);
         } else {
             sendErrorMessage(session, "Invalid command format");
         }
@@ -32,18 +48,19 @@ public class WebSocketHandler {
     }
 
     private UserGameCommand deserializeUserGameCommand(String message) {
-        // Deserialize JSON message to UserGameCommand object
-        // Implementation depends on the JSON library you are using (e.g., Gson, Jackson)
-        // For example, using Gson:
-        // return new Gson().fromJson(message, UserGameCommand.class);
-        return null; // Replace with actual deserialization logic
+        try {
+            UserGameCommand command = gson.fromJson(message, UserGameCommand.class);
+            return command != null && command.getCommandType() != null ? command : null;
+        } catch (JsonParseException e) {
+            return null;
+        }
     }
 
-    private void handleUserGameCommand(Session session, UserGameCommand command) {
+    private void handleUserGameCommand(Session session, UserGameCommand command, String message) {
         // Handle different types of UserGameCommand
         switch (command.getCommandType()) {
             case CONNECT:
-                // Handle CONNECT command
+                connect(session, gson.fromJson(message, UserGameCommand.ConnectCommand.class));
                 break;
             case MAKE_MOVE:
                 // Handle MAKE_MOVE command
@@ -57,11 +74,29 @@ public class WebSocketHandler {
         }
     }
 
+    // Sends the game as GameCodec's Base64 text, which the client reads back with LoadGameMessage.decodeGame
+    private void connect(Session session, UserGameCommand.ConnectCommand command) {
+        if (!authTokenDao.isValidAuthToken(command.getAuthString())) {
+            sendErrorMessage(session, "Error: unauthorized");
+            return;
+        }
+        GameData game = gameDao.getGame(command.getGameID());
+        if (game == null || game.getGame() == null) {
+            sendErrorMessage(session, "Error: no game with ID " + command.getGameID());
+            return;
+        }
+        send(session, new ServerMessage.LoadGameMessage(game.getGame()));
+    }
+
     private void sendErrorMessage(Session session, String errorMessage) {
-        // Send error message to client
-        ServerMessage errorResponse = new ServerMessage(ServerMessage.ServerMessageType.ERROR);
-        errorResponse.errorMessage = errorMessage;
-        //
-        // session.getRemote().sendString(new Gson().toJson(errorResponse));
+        send(session, new ServerMessage.ErrorMessage(errorMessage));
+    }
+
+    private void send(Session session, ServerMessage message) {
+        try {
+            session.getRemote().sendString(gson.toJson(message));
+        } catch (IOException e) {
+            System.out.println("Send failed: " + session.getRemoteAddress().getAddress() + ": " + e.getMessage());
+        }
     }
 }
@@ -57,6 +57,9 @@ public class Server {
         JoinGameHandler joinGameHandler = new JoinGameHandler(joinGameService, authTokenDao, gameDao);
         RegisterHandler registerHandler = new RegisterHandler();
 
+        // Spark wants the WebSocket endpoint mapped before any route
+        Spark.webSocket("/ws", new WebSocketHandler(gameDao, authTokenDao));
+
         // Register your endpoints and handle exceptions here
         Spark.delete("/db", clearHandler::handleRequest);
         Spark.post("/user", registerHandler::handleRequest);
@@ -65,8 +68,6 @@ public class Server {
         Spark.post("/game", createGameHandler::handleRequest);
         Spark.get("/game", listGamesHandler::handleRequest);
         Spark.put("/game", joinGameHandler::handleRequest);
-        // Add WebSocket endpoint
-        webSocket("/ws", WebSocketHandler.class);
 
         Spark.awaitInitialization();
         return Spark.port();
@@ -0,0 +1,72 @@
+package service;
+
+import chess.PgnImporter;
+import dataaccess.DatabaseManager;
+import dataaccess.GameDaoInterface;
+import dataaccess.SqlGameDao;
+import model.GameData;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Back-loads historical games from a PGN file into the games table.
+ * <p>
+ * Run it with a file name and optionally a thread count:
+ * {@code java -cp server.jar service.PgnImportService games.pgn 8}
+ */
+public class PgnImportService {
+    private static final int BATCH_SIZE = 500;
+    // game_name is a VARCHAR(255)
+    private static final int MAX_NAME_LENGTH = 255;
+
+    private GameDaoInterface gameDao;
+
+    public PgnImportService(GameDaoInterface gameDao) {
+        this.gameDao = gameDao;
+    }
+
+    public PgnImporter.Result importFile(Path pgnFile, int threads) throws IOException, InterruptedException {
+        try (Reader reader = Files.newBufferedReader(pgnFile, StandardCharsets.UTF_8)) {
+            return PgnImporter.importGames(reader, threads, BATCH_SIZE, batch -> {
+                List<GameData> games = new ArrayList<>(batch.size());
+                for (PgnImporter.ImportedGame imported : batch) {
+                    games.add(new GameData(0, null, null, gameName(imported.tags()), imported.game()));
+                }
+                gameDao.insertGames(games);
+            });
+        }
+    }
+
+    // Players aren't users of this server, so they go in the name, e.g. "Morphy vs Duke of Brunswick (Paris, 1858.??.??)"
+    static String gameName(Map<String, String> tags) {
+        String name = tags.getOrDefault("White", "?") + " vs " + tags.getOrDefault("Black", "?");
+        String event = tags.getOrDefault("Event", "?");
+        String date = tags.getOrDefault("Date", "?");
+        if (!event.equals("?") || !date.equals("?")) {
+            name += " (" + event + ", " + date + ")";
+        }
+        return name.length() > MAX_NAME_LENGTH ? name.substring(0, MAX_NAME_LENGTH) : name;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: PgnImportService <file.pgn> [threads]");
+            System.exit(1);
+        }
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        DatabaseManager.createDatabase();
+        DatabaseManager.initializeDatabase();
+
+        PgnImportService service = new PgnImportService(new SqlGameDao(SqlGameDao.StateFormat.PGN));
+        PgnImporter.Result result = service.importFile(Path.of(args[0]), threads);
+        System.out.printf("Imported %,d games (%,d rejected) in %.1f s, %,.0f games/s%n",
+                result.imported(), result.rejected(), result.nanos() / 1e9, result.gamesPerSecond());
+    }
+}
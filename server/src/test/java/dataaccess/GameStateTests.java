@@ -0,0 +1,79 @@
+package dataaccess;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.GameCodec;
+import chess.InvalidMoveException;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameStateTests {
+    // A games.state value written as Gson JSON before ChessBoard moved to bitboards: 1.e4 e5 2.Nf3
+    private static final String LEGACY_JSON_STATE = """
+            {"board":{"squares":[
+                [{"pieceColor":"WHITE","type":"ROOK"},{"pieceColor":"WHITE","type":"KNIGHT"},{"pieceColor":"WHITE","type":"BISHOP"},{"pieceColor":"WHITE","type":"QUEEN"},{"pieceColor":"WHITE","type":"KING"},{"pieceColor":"WHITE","type":"BISHOP"},null,{"pieceColor":"WHITE","type":"ROOK"}],
+                [{"pieceColor":"WHITE","type":"PAWN"},{"pieceColor":"WHITE","type":"PAWN"},{"pieceColor":"WHITE","type":"PAWN"},{"pieceColor":"WHITE","type":"PAWN"},null,{"pieceColor":"WHITE","type":"PAWN"},{"pieceColor":"WHITE","type":"PAWN"},{"pieceColor":"WHITE","type":"PAWN"}],
+                [null,null,null,null,null,{"pieceColor":"WHITE","type":"KNIGHT"},null,null],
+                [null,null,null,null,{"pieceColor":"WHITE","type":"PAWN"},null,null,null],
+                [null,null,null,null,{"pieceColor":"BLACK","type":"PAWN"},null,null,null],
+                [null,null,null,null,null,null,null,null],
+                [{"pieceColor":"BLACK","type":"PAWN"},{"pieceColor":"BLACK","type":"PAWN"},{"pieceColor":"BLACK","type":"PAWN"},{"pieceColor":"BLACK","type":"PAWN"},null,{"pieceColor":"BLACK","type":"PAWN"},{"pieceColor":"BLACK","type":"PAWN"},{"pieceColor":"BLACK","type":"PAWN"}],
+                [{"pieceColor":"BLACK","type":"ROOK"},{"pieceColor":"BLACK","type":"KNIGHT"},{"pieceColor":"BLACK","type":"BISHOP"},{"pieceColor":"BLACK","type":"QUEEN"},{"pieceColor":"BLACK","type":"KING"},{"pieceColor":"BLACK","type":"BISHOP"},{"pieceColor":"BLACK","type":"KNIGHT"},{"pieceColor":"BLACK","type":"ROOK"}]
+            ]},
+            "currentTeamTurn":"BLACK","originalState":{},"temporaryState":{}}""";
+
+    @Test
+    void legacyJsonRowsKeepTheirPieces() throws DataAccessException {
+        ChessGame game = SqlGameDao.parseState(null, LEGACY_JSON_STATE);
+        assertEquals(ChessBoard.fromFen("rnbqkbnr/pppp1ppp/8/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R"), game.getBoard());
+        assertEquals(ChessGame.TeamColor.BLACK, game.getTeamTurn());
+    }
+
+    @Test
+    void everyFormatReadsBack() throws DataAccessException {
+        ChessGame game = ChessGame.fromFen("rnbqkbnr/pppp1ppp/8/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R b KQkq - 1 2");
+        assertEquals(game, SqlGameDao.parseState(null, game.toFen()));
+        assertEquals(game, SqlGameDao.parseState(GameCodec.encode(game), null));
+        assertEquals(game, SqlGameDao.parseState(null, new Gson().toJson(game)));
+    }
+
+    @Test
+    void savedGamesKeepTheirHistoryByDefault() throws DataAccessException, InvalidMoveException {
+        ChessGame game = new ChessGame();
+        // Knights out and back twice: the start position comes up a third time
+        int[][] shuffle = {{1, 7, 3, 6}, {8, 7, 6, 6}, {3, 6, 1, 7}, {6, 6, 8, 7}};
+        for (int i = 0; i < 8; i++) {
+            int[] move = shuffle[i % shuffle.length];
+            game.makeMove(new ChessMove(new ChessPosition(move[0], move[1]), new ChessPosition(move[2], move[3]), null));
+        }
+        assertTrue(game.isThreefoldRepetition());
+
+        ChessGame loaded = SqlGameDao.parseState(null, SqlGameDao.stateText(game, SqlGameDao.DEFAULT_STATE_FORMAT));
+        assertEquals(game, loaded);
+        assertArrayEquals(game.getMoveHistory(), loaded.getMoveHistory());
+        assertTrue(loaded.isThreefoldRepetition());
+    }
+
+    @Test
+    void editedPositionsAreSavedAsThemselves() throws DataAccessException, InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        game.setTeamTurn(ChessGame.TeamColor.WHITE);
+
+        ChessGame loaded = SqlGameDao.parseState(null, SqlGameDao.stateText(game, SqlGameDao.StateFormat.PGN));
+        assertEquals(game.toFen(), loaded.toFen());
+        assertEquals(0, loaded.getMoveHistory().length);
+    }
+
+    @Test
+    void rowsWithoutStateGiveAClearError() {
+        DataAccessException missing = assertThrows(DataAccessException.class, () -> SqlGameDao.parseState(null, null));
+        assertEquals("Game row has no saved state", missing.getMessage());
+        assertThrows(DataAccessException.class, () -> SqlGameDao.parseState(null, ""));
+        assertThrows(DataAccessException.class, () -> SqlGameDao.parseState(null, "   "));
+    }
+}
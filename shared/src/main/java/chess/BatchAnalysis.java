@@ -0,0 +1,231 @@
+package chess;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * Offline analysis of large position sets, such as puzzle collections or
+ * positions taken from game archives: evaluates, searches or perfts every FEN
+ * in a stream.
+ * <p>
+ * The calling thread reads lines in batches and hands each batch to a
+ * ForkJoinPool. Every pool thread keeps its own Search and move buffers, so
+ * positions are analysed with no sharing between threads. Results go to the
+ * sink on the calling thread, batch by batch in input order, as soon as the
+ * oldest batch is done. Reading stops whenever two batches per thread are
+ * waiting; the calling thread then joins the oldest and passes its results on
+ * before reading the next batch, so the pool never runs more than that far
+ * ahead of the sink.
+ */
+public final class BatchAnalysis {
+    /**
+     * What to work out for each position: the static evaluation, a search to
+     * the given depth, or a perft count to the given depth
+     */
+    public enum Kind {
+        EVALUATE,
+        SEARCH,
+        PERFT
+    }
+
+    public record Task(Kind kind, int depth) {
+        public static Task evaluate() {
+            return new Task(Kind.EVALUATE, 0);
+        }
+
+        public static Task search(int depth) {
+            return new Task(Kind.SEARCH, depth);
+        }
+
+        public static Task perft(int depth) {
+            return new Task(Kind.PERFT, depth);
+        }
+    }
+
+    /**
+     * One position's result: the input line number it came from (1-based),
+     * its FEN, the value (centipawns for the side to move, or the perft
+     * count), the best move (packed, 0 unless searched) and the nodes visited
+     */
+    public record Analysis(long line, String fen, long value, int move, long nodes) {
+        /**
+         * @return the best move found, or null if there wasn't one or the position wasn't searched
+         */
+        public ChessMove chessMove() {
+            return move == 0 ? null : PackedMove.toChessMove(move);
+        }
+    }
+
+    /**
+     * How a run went: positions analysed, lines skipped because they weren't a
+     * valid FEN, the total nodes and the wall time taken
+     */
+    public record Result(long analysed, long rejected, long nodes, long nanos) {
+        public double positionsPerSecond() {
+            return analysed / (nanos / 1e9);
+        }
+
+        public double nodesPerSecond() {
+            return nodes / (nanos / 1e9);
+        }
+    }
+
+    // A batch of input lines, numbered from firstLine
+    private record Batch(long firstLine, List<String> lines) {
+    }
+
+    private record AnalysedBatch(List<Analysis> analyses, int rejected) {
+    }
+
+    // Each pool thread's own searcher and buffers
+    private static final class Worker {
+        private final Search search = new Search(new TranspositionTable(SEARCH_TABLE_MB), new PawnHashTable(64));
+        private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    }
+
+    // Small enough that a table per thread is fine, big enough for the depths batch jobs use
+    private static final int SEARCH_TABLE_MB = 4;
+
+    private BatchAnalysis() {
+    }
+
+    /**
+     * Analyses every position in the source, one FEN per line. Blank lines
+     * are skipped, and anything after a ';' is ignored, so EPD-style comments
+     * may follow the position. The sink is called on the calling thread, once
+     * per position in input order, and may write results out as they come. If
+     * it throws, outstanding work is cancelled and the exception is rethrown here.
+     *
+     * @throws IllegalArgumentException if threads or batchSize is below 1
+     */
+    public static Result analyse(Reader source, Task task, int threads, int batchSize, Consumer<Analysis> sink)
+            throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Batch analysis needs at least one thread, not " + threads);
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batches need at least one line, not " + batchSize);
+        }
+        long start = System.nanoTime();
+        int maxInFlight = threads * 2;
+        ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+        Queue<ForkJoinTask<AnalysedBatch>> inFlight = new ArrayDeque<>(maxInFlight);
+        long analysed = 0;
+        long rejected = 0;
+        long nodes = 0;
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try (BufferedReader reader = source instanceof BufferedReader buffered ? buffered : new BufferedReader(source)) {
+            long lineNumber = 0;
+            List<String> lines = new ArrayList<>(batchSize);
+            for (String line = reader.readLine(); ; line = reader.readLine()) {
+                if (line != null) {
+                    lines.add(line);
+                    lineNumber++;
+                }
+                if (lines.size() == batchSize || (line == null && !lines.isEmpty())) {
+                    Batch batch = new Batch(lineNumber - lines.size() + 1, lines);
+                    inFlight.add(pool.submit(() -> analyse(batch, task, workers.get())));
+                    lines = new ArrayList<>(batchSize);
+                }
+                // Hand on the oldest batch once enough are read ahead, and everything at the end
+                while (inFlight.size() >= maxInFlight || (line == null && !inFlight.isEmpty())) {
+                    AnalysedBatch done = inFlight.remove().join();
+                    for (Analysis analysis : done.analyses()) {
+                        sink.accept(analysis);
+                        nodes += analysis.nodes();
+                    }
+                    analysed += done.analyses().size();
+                    rejected += done.rejected();
+                }
+                if (line == null) {
+                    break;
+                }
+            }
+        } finally {
+            for (ForkJoinTask<AnalysedBatch> pending : inFlight) {
+                pending.cancel(false);
+            }
+            pool.shutdownNow();
+        }
+        return new Result(analysed, rejected, nodes, System.nanoTime() - start);
+    }
+
+    private static AnalysedBatch analyse(Batch batch, Task task, Worker worker) {
+        List<Analysis> analyses = new ArrayList<>(batch.lines().size());
+        int rejected = 0;
+        for (int i = 0; i < batch.lines().size(); i++) {
+            String line = batch.lines().get(i);
+            int comment = line.indexOf(';');
+            String fen = (comment >= 0 ? line.substring(0, comment) : line).trim();
+            if (fen.isEmpty()) {
+                continue;
+            }
+            ChessGame game;
+            try {
+                game = Fen.parse(fen);
+            } catch (IllegalArgumentException e) {
+                rejected++;
+                continue;
+            }
+            analyses.add(analyse(batch.firstLine() + i, fen, game, task, worker));
+        }
+        return new AnalysedBatch(analyses, rejected);
+    }
+
+    private static Analysis analyse(long line, String fen, ChessGame game, Task task, Worker worker) {
+        return switch (task.kind()) {
+            case EVALUATE -> {
+                // Evaluation only goes for quiet positions, so mates and stalemates are scored like the search would
+                if (MoveGenerator.generateLegalMoves(game, worker.moves) == 0) {
+                    yield new Analysis(line, fen, game.isInCheck(game.getTeamTurn()) ? -Search.MATE : 0, 0, 1);
+                }
+                yield new Analysis(line, fen, Evaluation.evaluate(game), 0, 1);
+            }
+            case SEARCH -> {
+                Search.Result result = worker.search.search(game, Search.Limits.ofDepth(task.depth()));
+                yield new Analysis(line, fen, result.score(), result.move(), result.nodes());
+            }
+            case PERFT -> {
+                long count = Perft.perft(game, task.depth());
+                yield new Analysis(line, fen, count, 0, count);
+            }
+        };
+    }
+
+    /**
+     * Analyses a file of FENs and prints one "line;value;move" row per position,
+     * then the totals. Arguments: the file, then evaluate, search DEPTH or
+     * perft DEPTH, then optionally the thread count.
+     */
+    public static void main(String[] args) throws IOException {
+        Path file = Path.of(args[0]);
+        Kind kind = Kind.valueOf(args[1].toUpperCase());
+        int depth = kind == Kind.EVALUATE ? 0 : Integer.parseInt(args[2]);
+        int threadsArg = kind == Kind.EVALUATE ? 2 : 3;
+        int threads = args.length > threadsArg ? Integer.parseInt(args[threadsArg]) : Runtime.getRuntime().availableProcessors();
+
+        PrintStream out = new PrintStream(System.out, false, StandardCharsets.UTF_8);
+        Result result;
+        try (Reader source = Files.newBufferedReader(file)) {
+            result = analyse(source, new Task(kind, depth), threads, 64, analysis -> out.printf("%d;%d;%s%n",
+                    analysis.line(), analysis.value(), analysis.move() == 0 ? "-" : PackedMove.toString(analysis.move())));
+        }
+        out.flush();
+        System.err.printf("%,d positions (%,d rejected), %,d nodes in %.3f s: %,.0f positions/s, %,.0f nodes/s%n",
+                result.analysed(), result.rejected(), result.nodes(), result.nanos() / 1e9,
+                result.positionsPerSecond(), result.nodesPerSecond());
+    }
+}
@@ -0,0 +1,133 @@
+package chess;
+
+/**
+ * Static helpers for working with 64-bit square sets.
+ * <p>
+ * Square n is bit n of a long, counting a1 = 0, b1 = 1, ... h8 = 63, so
+ * square = (row - 1) * 8 + (column - 1) for a ChessPosition.
+ */
+final class Bitboards {
+    static final long FILE_A = 0x0101010101010101L;
+    static final long FILE_H = FILE_A << 7;
+    static final long RANK_1 = 0xFFL;
+    static final long RANK_8 = RANK_1 << 56;
+
+    // Leaper attacks never depend on the rest of the board, so they are built once
+    static final long[] KNIGHT_ATTACKS = new long[64];
+    static final long[] KING_ATTACKS = new long[64];
+    static final long[][] PAWN_ATTACKS = new long[2][64];
+    // Squares strictly between two squares on a shared rank, file or diagonal; empty otherwise
+    static final long[][] BETWEEN = new long[64][64];
+    // The whole rank, file or diagonal through two squares, edge to edge; empty if they don't share one
+    static final long[][] LINE = new long[64][64];
+
+    static {
+        int[][] knightJumps = {{2, 1}, {2, -1}, {-2, 1}, {-2, -1}, {1, 2}, {1, -2}, {-1, 2}, {-1, -2}};
+        int[][] kingSteps = {{1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1}};
+        for (int sq = 0; sq < 64; sq++) {
+            KNIGHT_ATTACKS[sq] = stepTargets(sq, knightJumps);
+            KING_ATTACKS[sq] = stepTargets(sq, kingSteps);
+            PAWN_ATTACKS[0][sq] = stepTargets(sq, new int[][]{{1, 1}, {1, -1}});
+            PAWN_ATTACKS[1][sq] = stepTargets(sq, new int[][]{{-1, 1}, {-1, -1}});
+        }
+        for (int sq = 0; sq < 64; sq++) {
+            for (int[] step : kingSteps) {
+                long line = bit(sq) | slide(sq, 0L, step[0], step[1]) | slide(sq, 0L, -step[0], -step[1]);
+                long between = 0L;
+                int row = row(sq) + step[0];
+                int col = column(sq) + step[1];
+                while (onBoard(row, col)) {
+                    int target = square(row, col);
+                    BETWEEN[sq][target] = between;
+                    LINE[sq][target] = line;
+                    between |= bit(target);
+                    row += step[0];
+                    col += step[1];
+                }
+            }
+        }
+    }
+
+    private Bitboards() {
+    }
+
+    static int square(int row, int col) {
+        return (row - 1) * 8 + (col - 1);
+    }
+
+    static int square(ChessPosition position) {
+        return square(position.getRow(), position.getColumn());
+    }
+
+    static int row(int square) {
+        return (square >>> 3) + 1;
+    }
+
+    static int column(int square) {
+        return (square & 7) + 1;
+    }
+
+    static long bit(int square) {
+        return 1L << square;
+    }
+
+    static boolean onBoard(int row, int col) {
+        return row >= 1 && row <= 8 && col >= 1 && col <= 8;
+    }
+
+    static boolean onBoard(ChessPosition position) {
+        return onBoard(position.getRow(), position.getColumn());
+    }
+
+    static long rookAttacks(int square, long occupied) {
+        return MagicBitboards.rookAttacks(square, occupied);
+    }
+
+    static long bishopAttacks(int square, long occupied) {
+        return MagicBitboards.bishopAttacks(square, occupied);
+    }
+
+    static long queenAttacks(int square, long occupied) {
+        return MagicBitboards.rookAttacks(square, occupied) | MagicBitboards.bishopAttacks(square, occupied);
+    }
+
+    // Ray-by-ray slider attacks; only used to fill the magic tables
+    static long rookRays(int square, long occupied) {
+        return slide(square, occupied, 1, 0) | slide(square, occupied, -1, 0)
+                | slide(square, occupied, 0, 1) | slide(square, occupied, 0, -1);
+    }
+
+    static long bishopRays(int square, long occupied) {
+        return slide(square, occupied, 1, 1) | slide(square, occupied, 1, -1)
+                | slide(square, occupied, -1, 1) | slide(square, occupied, -1, -1);
+    }
+
+    // Walks one ray until it leaves the board or hits a piece; the blocker itself is included
+    private static long slide(int square, long occupied, int rowStep, int colStep) {
+        long attacks = 0L;
+        int row = row(square) + rowStep;
+        int col = column(square) + colStep;
+        while (onBoard(row, col)) {
+            long target = bit(square(row, col));
+            attacks |= target;
+            if ((occupied & target) != 0) {
+                break;
+            }
+            row += rowStep;
+            col += colStep;
+        }
+        return attacks;
+    }
+
+    private static long stepTargets(int square, int[][] steps) {
+        long targets = 0L;
+        for (int[] step : steps) {
+            int row = row(square) + step[0];
+            int col = column(square) + step[1];
+            if (onBoard(row, col)) {
+                targets |= bit(square(row, col));
+            }
+        }
+        return targets;
+    }
+}
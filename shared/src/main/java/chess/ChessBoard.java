@@ -1,5 +1,7 @@
 package chess;
 
+import com.google.gson.annotations.JsonAdapter;
+
 import java.util.Arrays;
 
 /**
@@ -8,8 +10,30 @@ import java.util.Arrays;
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessBoardAdapter.class)
 public class ChessBoard {
-    private ChessPiece[][] squares = new ChessPiece[8][8];
+    // One bitboard per kind of piece, indexed by team * 6 + piece type (see pieceIndex)
+    private long[] pieceSets = new long[12];
+    // Every square holding a white piece, and every square holding a black piece
+    private long[] occupancy = new long[2];
+    // Squares each team attacks. Rebuilt on demand after the board changes, and handed
+    // back by ChessGame when it undoes a move so the old position's maps stay usable
+    private transient long[] attackMaps = new long[2];
+    private transient boolean attackMapsValid;
+    // Zobrist key of the piece placement, XORed on every change. Not saved with the board:
+    // a freshly loaded board starts with keyValid false and rebuilds the key once
+    private transient long zobristKey;
+    // The same for the pawns alone, for caching pawn structure scores
+    private transient long pawnKey;
+    private transient boolean keyValid;
+    // Material plus piece-square score (packed, see Evaluation.score) and game phase, kept up
+    // to date the same way as the key so evaluating a position never has to scan the board
+    private transient int pieceSquareScore;
+    private transient int phase;
+    private transient boolean scoresValid;
+
+    private static final String PIECE_CHARS = "KQBNRPkqbnrp";
+
     public ChessBoard() {
         //resetBoard();
     }
@@ -20,9 +44,18 @@ public class ChessBoard {
      *
      * @param position where to add the piece to
      * @param piece    the piece to add
+     * @throws IllegalArgumentException if the position is off the board
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        squares[position.getRow() - 1][position.getColumn() - 1] = piece;
+        if (!Bitboards.onBoard(position)) {
+            throw new IllegalArgumentException("Position is off the board: row " + position.getRow()
+                    + ", column " + position.getColumn());
+        }
+        int square = Bitboards.square(position);
+        clearSquare(square);
+        if (piece != null) {
+            setPiece(square, pieceIndex(piece.getTeamColor(), piece.getPieceType()));
+        }
     }
 
     /**
@@ -30,11 +63,34 @@ public class ChessBoard {
      *
      * @param position The position to get the piece from
      * @return Either the piece at the position, or null if no piece is at that
-     * position
+     * position or it's off the board
      */
     public ChessPiece getPiece(ChessPosition position) {
-        return squares[position.getRow() - 1][position.getColumn() - 1];
+        if (!Bitboards.onBoard(position)) {
+            return null;
+        }
+        int index = pieceAt(Bitboards.square(position));
+        return index < 0 ? null : ChessPiece.ofIndex(index);
+    }
 
+    /**
+     * @return the piece placement field of a FEN string for this board, e.g.
+     * "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR"
+     */
+    public String toFen() {
+        return Fen.formatPlacement(this);
+    }
+
+    /**
+     * Builds a board from a FEN piece placement field. A full FEN string is also
+     * accepted; everything after the placement is ignored.
+     *
+     * @throws IllegalArgumentException if the placement isn't 8 rows of 8 squares
+     */
+    public static ChessBoard fromFen(String fen) {
+        String trimmed = fen.trim();
+        int end = trimmed.indexOf(' ');
+        return Fen.parsePlacement(end < 0 ? trimmed : trimmed.substring(0, end));
     }
 
     /**
@@ -43,36 +99,265 @@ public class ChessBoard {
      */
     public void resetBoard() {
         // Clear the board
-        for (ChessPiece[] square : squares) {
-            Arrays.fill(square, null);
-        }
+        Arrays.fill(pieceSets, 0L);
+        zobristKey = 0L;
+        pawnKey = 0L;
+        keyValid = true;
+        pieceSquareScore = 0;
+        phase = 0;
+        scoresValid = true;
+        Arrays.fill(occupancy, 0L);
+        attackMapsValid = false;
 
         // Set up the pawns
         for (int col = 0; col < 8; col++) {
-            addPiece(new ChessPosition(2, col + 1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
-            addPiece(new ChessPosition(7, col + 1), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+            addPiece(ChessPosition.of(2, col + 1), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+            addPiece(ChessPosition.of(7, col + 1), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
         }
 
         // Set up the other pieces (Rooks, Knights, Bishops, Queen, King) for both teams
         // White pieces
-        addPiece(new ChessPosition(1, 1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
-        addPiece(new ChessPosition(1, 2), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(1, 3), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(1, 4), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
-        addPiece(new ChessPosition(1, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
-        addPiece(new ChessPosition(1, 6), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(1, 7), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(1, 8), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+        addPiece(ChessPosition.of(1, 1), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+        addPiece(ChessPosition.of(1, 2), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(1, 3), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(1, 4), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+        addPiece(ChessPosition.of(1, 5), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        addPiece(ChessPosition.of(1, 6), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(1, 7), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(1, 8), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
 
         // Black pieces
-        addPiece(new ChessPosition(8, 1), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
-        addPiece(new ChessPosition(8, 2), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(8, 3), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(8, 4), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
-        addPiece(new ChessPosition(8, 5), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
-        addPiece(new ChessPosition(8, 6), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(8, 7), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(8, 8), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+        addPiece(ChessPosition.of(8, 1), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+        addPiece(ChessPosition.of(8, 2), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(8, 3), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(8, 4), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+        addPiece(ChessPosition.of(8, 5), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        addPiece(ChessPosition.of(8, 6), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(8, 7), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(8, 8), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+    }
+
+    static int pieceIndex(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return ChessPiece.index(color, type);
+    }
+
+    /**
+     * @return the piece index on the given square, or -1 if the square is empty
+     */
+    int pieceAt(int square) {
+        long mask = Bitboards.bit(square);
+        int first;
+        if ((occupancy[0] & mask) != 0) {
+            first = 0;
+        } else if ((occupancy[1] & mask) != 0) {
+            first = 6;
+        } else {
+            return -1;
+        }
+        for (int index = first; index < first + 6; index++) {
+            if ((pieceSets[index] & mask) != 0) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    void setPiece(int square, int pieceIndex) {
+        long mask = Bitboards.bit(square);
+        pieceSets[pieceIndex] |= mask;
+        zobristKey ^= Zobrist.PIECE_SQUARE[pieceIndex][square];
+        pawnKey ^= Zobrist.PAWN_SQUARE[pieceIndex][square];
+        pieceSquareScore += Evaluation.PIECE_SQUARE[pieceIndex][square];
+        phase += Evaluation.PHASE[pieceIndex];
+        occupancy[pieceIndex / 6] |= mask;
+        attackMapsValid = false;
+    }
+
+    // Like clearSquare, for callers that already know which piece is there
+    void removePiece(int square, int pieceIndex) {
+        long mask = Bitboards.bit(square);
+        pieceSets[pieceIndex] &= ~mask;
+        zobristKey ^= Zobrist.PIECE_SQUARE[pieceIndex][square];
+        pawnKey ^= Zobrist.PAWN_SQUARE[pieceIndex][square];
+        pieceSquareScore -= Evaluation.PIECE_SQUARE[pieceIndex][square];
+        phase -= Evaluation.PHASE[pieceIndex];
+        occupancy[pieceIndex / 6] &= ~mask;
+        attackMapsValid = false;
+    }
+
+    void clearSquare(int square) {
+        int index = pieceAt(square);
+        if (index >= 0) {
+            removePiece(square, index);
+        }
+    }
+
+    long pieces(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return pieceSets[pieceIndex(color, type)];
+    }
+
+    long occupancy(ChessGame.TeamColor color) {
+        return occupancy[color.ordinal()];
+    }
+
+    long occupied() {
+        return occupancy[0] | occupancy[1];
+    }
+
+    /**
+     * @return the square of the given team's king, or -1 if it has none
+     */
+    int kingSquare(ChessGame.TeamColor color) {
+        long king = pieces(color, ChessPiece.PieceType.KING);
+        return king == 0 ? -1 : Long.numberOfTrailingZeros(king);
+    }
+
+    /**
+     * Finds every piece of the attacking team that attacks a square, looking
+     * outward from the square with each piece's attack pattern
+     */
+    long attackersTo(int square, ChessGame.TeamColor attacker) {
+        long occupied = occupied();
+        ChessGame.TeamColor defender = attacker == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        long queens = pieces(attacker, ChessPiece.PieceType.QUEEN);
+        return (Bitboards.PAWN_ATTACKS[defender.ordinal()][square] & pieces(attacker, ChessPiece.PieceType.PAWN))
+                | (Bitboards.KNIGHT_ATTACKS[square] & pieces(attacker, ChessPiece.PieceType.KNIGHT))
+                | (Bitboards.KING_ATTACKS[square] & pieces(attacker, ChessPiece.PieceType.KING))
+                | (Bitboards.rookAttacks(square, occupied) & (pieces(attacker, ChessPiece.PieceType.ROOK) | queens))
+                | (Bitboards.bishopAttacks(square, occupied) & (pieces(attacker, ChessPiece.PieceType.BISHOP) | queens));
+    }
+
+    boolean isSquareAttacked(int square, ChessGame.TeamColor attacker) {
+        return (attackMap(attacker) & Bitboards.bit(square)) != 0;
+    }
+
+    /**
+     * @return every square the given team attacks, whether or not it could legally move there
+     */
+    long attackMap(ChessGame.TeamColor attacker) {
+        if (!attackMapsValid) {
+            attackMaps[0] = computeAttacks(ChessGame.TeamColor.WHITE);
+            attackMaps[1] = computeAttacks(ChessGame.TeamColor.BLACK);
+            attackMapsValid = true;
+        }
+        return attackMaps[attacker.ordinal()];
+    }
+
+    /**
+     * Copies the cached attack maps out so they can be put back with restoreAttackMaps
+     *
+     * @return whether the copied maps were current
+     */
+    boolean saveAttackMaps(long[] into, int offset) {
+        into[offset] = attackMaps[0];
+        into[offset + 1] = attackMaps[1];
+        return attackMapsValid;
+    }
+
+    void restoreAttackMaps(long[] from, int offset, boolean valid) {
+        attackMaps[0] = from[offset];
+        attackMaps[1] = from[offset + 1];
+        attackMapsValid = valid;
+    }
+
+    private long computeAttacks(ChessGame.TeamColor attacker) {
+        return attacksThrough(attacker, occupied());
+    }
+
+    /**
+     * Every square the team attacks if only the given squares blocked its sliders.
+     * A full rebuild is a couple of shifts for the pawns plus one table lookup per other piece
+     */
+    long attacksThrough(ChessGame.TeamColor attacker, long occupied) {
+        long pawns = pieces(attacker, ChessPiece.PieceType.PAWN);
+        long attacks = attacker == ChessGame.TeamColor.WHITE
+                ? ((pawns << 7) & ~Bitboards.FILE_H) | ((pawns << 9) & ~Bitboards.FILE_A)
+                : ((pawns >>> 9) & ~Bitboards.FILE_H) | ((pawns >>> 7) & ~Bitboards.FILE_A);
+
+        long knights = pieces(attacker, ChessPiece.PieceType.KNIGHT);
+        while (knights != 0) {
+            attacks |= Bitboards.KNIGHT_ATTACKS[Long.numberOfTrailingZeros(knights)];
+            knights &= knights - 1;
+        }
+        long queens = pieces(attacker, ChessPiece.PieceType.QUEEN);
+        long diagonal = pieces(attacker, ChessPiece.PieceType.BISHOP) | queens;
+        while (diagonal != 0) {
+            attacks |= Bitboards.bishopAttacks(Long.numberOfTrailingZeros(diagonal), occupied);
+            diagonal &= diagonal - 1;
+        }
+        long straight = pieces(attacker, ChessPiece.PieceType.ROOK) | queens;
+        while (straight != 0) {
+            attacks |= Bitboards.rookAttacks(Long.numberOfTrailingZeros(straight), occupied);
+            straight &= straight - 1;
+        }
+        long kings = pieces(attacker, ChessPiece.PieceType.KING);
+        while (kings != 0) {
+            attacks |= Bitboards.KING_ATTACKS[Long.numberOfTrailingZeros(kings)];
+            kings &= kings - 1;
+        }
+        return attacks;
+    }
+
+    /**
+     * @return a 64-bit Zobrist hash of where every piece stands
+     */
+    public long getZobristKey() {
+        ensureKeys();
+        return zobristKey;
+    }
+
+    /**
+     * @return a Zobrist hash of where the pawns stand, ignoring every other piece
+     */
+    long pawnKey() {
+        ensureKeys();
+        return pawnKey;
+    }
+
+    private void ensureKeys() {
+        if (!keyValid) {
+            long key = 0L;
+            long pawns = 0L;
+            for (int index = 0; index < 12; index++) {
+                for (long set = pieceSets[index]; set != 0; set &= set - 1) {
+                    key ^= Zobrist.PIECE_SQUARE[index][Long.numberOfTrailingZeros(set)];
+                    pawns ^= Zobrist.PAWN_SQUARE[index][Long.numberOfTrailingZeros(set)];
+                }
+            }
+            zobristKey = key;
+            pawnKey = pawns;
+            keyValid = true;
+        }
+    }
+
+    /**
+     * @return the packed material and piece-square score, white minus black
+     */
+    int pieceSquareScore() {
+        ensureScores();
+        return pieceSquareScore;
+    }
+
+    /**
+     * @return the game phase, from 24 with every piece on the board down to 0 with only kings and pawns
+     */
+    int phase() {
+        ensureScores();
+        return phase;
+    }
+
+    private void ensureScores() {
+        if (!scoresValid) {
+            pieceSquareScore = 0;
+            phase = 0;
+            for (int index = 0; index < 12; index++) {
+                for (long set = pieceSets[index]; set != 0; set &= set - 1) {
+                    pieceSquareScore += Evaluation.PIECE_SQUARE[index][Long.numberOfTrailingZeros(set)];
+                    phase += Evaluation.PHASE[index];
+                }
+            }
+            scoresValid = true;
+        }
     }
 
     @Override
@@ -84,19 +369,27 @@ public class ChessBoard {
         //for loop going through columns
         //compare the that and this (True until proven false) "this" is current class, "that" is comparison
         //if returns false unless I get out of both, then return true
-        return Arrays.deepEquals(squares, that.squares);
+        return getZobristKey() == that.getZobristKey() && Arrays.equals(pieceSets, that.pieceSets);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(squares);
+        long key = getZobristKey();
+        return (int) (key ^ (key >>> 32));
     }
 
     @Override
     public String toString() {
-        return "ChessBoard{" +
-                "squares=" + Arrays.toString(squares) +
-                '}';
-        //string builder
+        // Same layout the passoff tests use to load boards: row 8 first, one |x| cell per square
+        StringBuilder text = new StringBuilder();
+        for (int row = 8; row >= 1; row--) {
+            text.append('|');
+            for (int col = 1; col <= 8; col++) {
+                int index = pieceAt(Bitboards.square(row, col));
+                text.append(index < 0 ? ' ' : PIECE_CHARS.charAt(index)).append('|');
+            }
+            text.append('\n');
+        }
+        return text.toString();
     }
 }
@@ -0,0 +1,120 @@
+package chess;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Gson form of a ChessBoard: the twelve piece bitboards plus the two
+ * occupancy words, as the fields used to be written reflectively.
+ * <p>
+ * Games saved before the board moved to bitboards hold an 8x8 "squares"
+ * array of pieces instead (row 1 first, each piece as its pieceColor and
+ * type), and those still load. Either way the board is rebuilt through
+ * setPiece, so the occupancy words, keys and scores always agree with the
+ * pieces whatever the JSON says.
+ */
+final class ChessBoardAdapter extends TypeAdapter<ChessBoard> {
+
+    @Override
+    public void write(JsonWriter out, ChessBoard board) throws IOException {
+        if (board == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("pieceSets").beginArray();
+        for (int index = 0; index < 12; index++) {
+            ChessPiece piece = ChessPiece.ofIndex(index);
+            out.value(board.pieces(piece.getTeamColor(), piece.getPieceType()));
+        }
+        out.endArray();
+        out.name("occupancy").beginArray();
+        out.value(board.occupancy(ChessGame.TeamColor.WHITE));
+        out.value(board.occupancy(ChessGame.TeamColor.BLACK));
+        out.endArray();
+        out.endObject();
+    }
+
+    @Override
+    public ChessBoard read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        ChessBoard board = new ChessBoard();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "pieceSets" -> readPieceSets(in, board);
+                case "squares" -> readSquares(in, board);
+                // Derived from the pieces, like everything else the board keeps
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return board;
+    }
+
+    private static void readPieceSets(JsonReader in, ChessBoard board) throws IOException {
+        in.beginArray();
+        for (int index = 0; in.hasNext(); index++) {
+            if (index >= 12) {
+                throw new JsonParseException("A board has 12 piece sets");
+            }
+            for (long set = in.nextLong(); set != 0; set &= set - 1) {
+                place(board, Long.numberOfTrailingZeros(set), index);
+            }
+        }
+        in.endArray();
+    }
+
+    private static void readSquares(JsonReader in, ChessBoard board) throws IOException {
+        in.beginArray();
+        for (int row = 1; in.hasNext(); row++) {
+            in.beginArray();
+            for (int col = 1; in.hasNext(); col++) {
+                if (!Bitboards.onBoard(row, col)) {
+                    throw new JsonParseException("A board has 8 rows of 8 squares");
+                }
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                } else {
+                    place(board, Bitboards.square(row, col), readPiece(in));
+                }
+            }
+            in.endArray();
+        }
+        in.endArray();
+    }
+
+    // A piece as Gson wrote ChessPiece reflectively: {"pieceColor":"WHITE","type":"ROOK"}
+    private static int readPiece(JsonReader in) throws IOException {
+        ChessGame.TeamColor color = null;
+        ChessPiece.PieceType type = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "pieceColor" -> color = ChessGame.TeamColor.valueOf(in.nextString());
+                case "type" -> type = ChessPiece.PieceType.valueOf(in.nextString());
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        if (color == null || type == null) {
+            throw new JsonParseException("A piece needs a pieceColor and a type");
+        }
+        return ChessPiece.index(color, type);
+    }
+
+    private static void place(ChessBoard board, int square, int pieceIndex) {
+        if (board.pieceAt(square) >= 0) {
+            throw new JsonParseException("Two pieces on square " + square);
+        }
+        board.setPiece(square, pieceIndex);
+    }
+}
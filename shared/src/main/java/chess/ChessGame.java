@@ -1,5 +1,10 @@
 package chess;
-import java.util.*;
+import com.google.gson.annotations.JsonAdapter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
 
 /**
  * For a class that can manage a chess game, making moves on a board
@@ -7,13 +12,59 @@ import java.util.*;
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessGameAdapter.class)
 public class ChessGame {
     private ChessBoard board;
     private TeamColor currentTeamTurn;
+    // Castling rights still held, as a mask of the CASTLE_* bits
+    private int castlingRights;
+    // Square a pawn just skipped over with its double move, or -1
+    private int enPassantSquare = -1;
+    // Moves since the last capture or pawn move
+    private int halfmoveClock;
+    // Starts at 1 and goes up after each of black's moves
+    private int fullmoveNumber = 1;
+    // Every move played with makeMove, packed, oldest first; replayable from startFen
+    private int[] moveHistory = new int[0];
+    private int moveHistorySize;
+    // The position before the first recorded move, or null while there are none
+    private String startFen;
+    // Undo stack depth just after the latest history move; undoing below it takes that move back
+    private transient int historyTop;
+    // Lets doMove/undoMove nest to any depth; not part of the game's saved state
+    private transient UndoStack undoStack = new UndoStack();
+    // Recent positions' legal moves for validMoves and makeMove; cleared whenever a move is played
+    private transient LegalMoveCache legalMoveCache = new LegalMoveCache();
+    // The move history as a persistent list for snapshots, kept in step with moveHistory
+    private transient GameSnapshot.History history;
+    // Replaced, never changed, whenever a move is played or the position is set; see snapshot
+    private transient volatile GameSnapshot snapshot;
+
+    static final int CASTLE_WHITE_KINGSIDE = 1;
+    static final int CASTLE_WHITE_QUEENSIDE = 2;
+    static final int CASTLE_BLACK_KINGSIDE = 4;
+    static final int CASTLE_BLACK_QUEENSIDE = 8;
+    static final int CASTLE_ALL = 15;
+
+    // Rights that survive a move touching each square: moving a king or rook, or capturing a rook, drops its rights
+    private static final int[] CASTLING_KEPT = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_KEPT, CASTLE_ALL);
+        CASTLING_KEPT[Bitboards.square(1, 1)] = CASTLE_ALL & ~CASTLE_WHITE_QUEENSIDE;
+        CASTLING_KEPT[Bitboards.square(1, 5)] = CASTLE_ALL & ~(CASTLE_WHITE_KINGSIDE | CASTLE_WHITE_QUEENSIDE);
+        CASTLING_KEPT[Bitboards.square(1, 8)] = CASTLE_ALL & ~CASTLE_WHITE_KINGSIDE;
+        CASTLING_KEPT[Bitboards.square(8, 1)] = CASTLE_ALL & ~CASTLE_BLACK_QUEENSIDE;
+        CASTLING_KEPT[Bitboards.square(8, 5)] = CASTLE_ALL & ~(CASTLE_BLACK_KINGSIDE | CASTLE_BLACK_QUEENSIDE);
+        CASTLING_KEPT[Bitboards.square(8, 8)] = CASTLE_ALL & ~CASTLE_BLACK_KINGSIDE;
+    }
+
     public ChessGame() {
         this.currentTeamTurn = TeamColor.WHITE;
         this.board = new ChessBoard();
         board.resetBoard();
+        this.castlingRights = CASTLE_ALL;
+        publishSnapshot();
     }
 
     /**
@@ -30,6 +81,7 @@ public class ChessGame {
      */
     public void setTeamTurn(TeamColor team) {
         this.currentTeamTurn = team;
+        publishSnapshot();
     }
 
     /**
@@ -40,6 +92,16 @@ public class ChessGame {
         BLACK
     }
 
+    /**
+     * Where a team stands: free to move, in check, checkmated or stalemated
+     */
+    public enum GameStatus {
+        NORMAL,
+        CHECK,
+        CHECKMATE,
+        STALEMATE
+    }
+
     /**
      * Gets a valid moves for a piece at the given location
      *
@@ -54,48 +116,30 @@ public class ChessGame {
             return null;
         }
 
-        TeamColor opponentColor = (piece.getTeamColor() == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
-        Collection<ChessMove> potentialMoves = piece.pieceMoves(board, startPosition);
-        Collection<ChessMove> validMoves = new ArrayList<>();
-
-        for (ChessMove move : potentialMoves) {
-            makeTempMove(move); // Simulate the move
-            // Check if the moving piece's king is in check after the move
-            boolean isCurrentKingInCheck = isInCheck(piece.getTeamColor());
-            boolean isMovingIntoCheck = false;
-
-            if (piece.getPieceType() == ChessPiece.PieceType.KING) {
-                // Additional check for king moves: The king should not move into a square that is under attack
-                isMovingIntoCheck = isSquareUnderAttack(move.getEndPosition(), opponentColor);
+        int square = Bitboards.square(startPosition);
+        Collection<ChessMove> moves = new ArrayList<>();
+        for (int move : legalTeamMoves(piece.getTeamColor())) {
+            if (PackedMove.from(move) == square) {
+                moves.add(PackedMove.toChessMove(move));
             }
-
-            if (!isCurrentKingInCheck && !isMovingIntoCheck) {
-                validMoves.add(move); // If the move doesn't result in a check and doesn't move the king into check, add it to the valid moves
-            }
-
-            undoTempMove(move); // Undo the simulated move
         }
+        return moves;
+    }
 
-        return validMoves;
-    }
-
-    // Helper method to check if a square is under attack
-    private boolean isSquareUnderAttack(ChessPosition position, TeamColor attackerColor) {
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) { //go through each square
-                ChessPosition currentPosition = new ChessPosition(row, col);
-                ChessPiece currentPiece = board.getPiece(currentPosition);
-                if (currentPiece != null && currentPiece.getTeamColor() == attackerColor) {
-                    Collection<ChessMove> opponentMoves = currentPiece.pieceMoves(board, currentPosition);
-                    for (ChessMove opponentMove : opponentMoves) {
-                        if (opponentMove.getEndPosition().equals(position)) {
-                            return true; // The square is under attack by an opponent's piece
-                        }
-                    }
-                }
-            }
+    // Every move of the team that doesn't leave its own king in check, from the cache when the position's been asked about
+    private int[] legalTeamMoves(TeamColor teamColor) {
+        long key = getZobristKey();
+        int[] cached = legalMoveCache.get(key, teamColor);
+        if (cached != null) {
+            return cached;
         }
-        return false;
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.legalMoves(this, teamColor, ~0L, moves, 0);
+        return legalMoveCache.put(key, teamColor, moves, count);
+    }
+
+    LegalMoveCache legalMoveCache() {
+        return legalMoveCache;
     }
 
     /**
@@ -109,214 +153,344 @@ public class ChessGame {
         if (piece == null) {
             throw new InvalidMoveException("No piece at the start position.");
         }
+        if (!Bitboards.onBoard(move.getEndPosition())) {
+            throw new InvalidMoveException("The end position is off the board.");
+        }
         if (piece.getTeamColor() != this.currentTeamTurn) {
             throw new InvalidMoveException("It's not " + piece.getTeamColor() + "'s turn.");
         }
 
-        Collection<ChessMove> legalMoves = validMoves(move.getStartPosition()); //get all Valid moves to check
-        if (legalMoves != null && legalMoves.contains(move)) {
-            // Execute the move
-            board.addPiece(move.getEndPosition(), piece);
-            board.addPiece(move.getStartPosition(), null);
-
-            // Handle pawn promotion
-            if (move.promotionPiece() != null && piece.getPieceType() == ChessPiece.PieceType.PAWN) {
-                board.addPiece(move.getEndPosition(), new ChessPiece(piece.getTeamColor(), move.promotionPiece()));
+        int packed = PackedMove.fromChessMove(move);
+        for (int legalMove : legalTeamMoves(piece.getTeamColor())) { //check against all valid moves
+            if (legalMove == packed) {
+                playMove(packed); // Execute the move, handling promotion and the change of turn
+                return;
             }
-
-            // Change turn
-            this.currentTeamTurn = (this.currentTeamTurn == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
-        } else {
-            throw new InvalidMoveException("This move is not allowed.");
         }
+        throw new InvalidMoveException("This move is not allowed.");
     }
 
-
     /**
-     * Determines if the given team is in check
-     *
-     * @param teamColor which team to check for check
-     * @return True if the specified team is in check
+     * Like doMove, but the move also goes on the game's move history
      */
-    public boolean isInCheck(TeamColor teamColor) {
-        ChessPosition kingPosition = findKingPosition(teamColor);
-        if (kingPosition == null) {
-            // King not found, should not happen if the board is in a valid state
-            return false;
+    void playMove(int move) {
+        if (moveHistorySize == 0) {
+            startFen = toFen();
         }
-
-        // Check if any of the opposing team's pieces can capture the King
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = board.getPiece(position);
-                if (piece != null && piece.getTeamColor() != teamColor) {
-                    // It's an opposing piece, check its valid moves
-                    Collection<ChessMove> moves = piece.pieceMoves(board, position);
-                    for (ChessMove move : moves) {
-                        if (move.getEndPosition().equals(kingPosition)) {
-                            // King can be captured by this move
-                            return true;
-                        }
-                    }
-                }
-            }
+        if (moveHistorySize == moveHistory.length) {
+            moveHistory = Arrays.copyOf(moveHistory, Math.max(moveHistorySize * 2, 16));
         }
+        moveHistory[moveHistorySize++] = move;
+        doMove(move);
+        historyTop = undoStack.size();
+        legalMoveCache.clear();
+        publishSnapshot();
+    }
 
-        // No opposing pieces can capture the King
-        return false;
+    /**
+     * An immutable copy of the game as of the last move played, or the last
+     * setBoard or setTeamTurn, that any thread may read while this game moves
+     * on. Changes made straight to the board show from the next of those.
+     * Every game publishes its first snapshot as it's made or loaded, so this
+     * only reads the volatile field and is safe from any thread.
+     */
+    public GameSnapshot snapshot() {
+        return snapshot;
     }
 
-    private ChessPosition findKingPosition(TeamColor teamColor) { //helper function
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = board.getPiece(position);
-                if (piece != null && piece.getTeamColor() == teamColor && piece.getPieceType() == ChessPiece.PieceType.KING) {
-                    return position; // Found the King
-                }
-            }
-        }
-        return null; // King not found
+    // Only ever called by the thread playing or setting up the game
+    void publishSnapshot() {
+        history = GameSnapshot.History.of(history, moveHistory, moveHistorySize);
+        snapshot = new GameSnapshot(this, board, startFen, history);
     }
 
+    /**
+     * @return the packed moves (see PackedMove) played on this game so far, oldest first
+     */
+    public int[] getMoveHistory() {
+        return Arrays.copyOf(moveHistory, moveHistorySize);
+    }
 
+    /**
+     * @return the FEN of the position the move history starts from
+     */
+    public String getStartFen() {
+        return startFen != null ? startFen : toFen();
+    }
 
     /**
-     * Determines if the given team is in checkmate
-     *
-     * @param teamColor which team to check for checkmate
-     * @return True if the specified team is in checkmate
+     * Plays a packed move without checking it, pushing what's needed to take it
+     * back with undoMove. The move must be one MoveGenerator produced for the
+     * piece on its start square.
      */
-    public boolean isInCheckmate(TeamColor teamColor) {
-        // 1. Check if the King is in Check
-        if (!isInCheck(teamColor)) {
-            return false;  // If the king is not in check, it can't be in checkmate.
+    void doMove(int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int moving = board.pieceAt(from);
+        ChessPiece.PieceType type = ChessPiece.ofIndex(moving).getPieceType();
+        boolean pawnMove = type == ChessPiece.PieceType.PAWN;
+        // A pawn landing on the en passant square takes the pawn that skipped over it
+        int capturedSquare = pawnMove && to == enPassantSquare ? PackedMove.enPassantVictim(from, to) : to;
+        int captured = board.pieceAt(capturedSquare);
+        undoStack.push(move, UndoStack.packState(captured, castlingRights, enPassantSquare, halfmoveClock), getZobristKey(), board);
+
+        if (captured >= 0) {
+            board.removePiece(capturedSquare, captured);
+        }
+        board.removePiece(from, moving);
+        ChessPiece.PieceType promotion = PackedMove.promotion(move);
+        board.setPiece(to, promotion == null ? moving : ChessPiece.index(ChessPiece.ofIndex(moving).getTeamColor(), promotion));
+        if (type == ChessPiece.PieceType.KING && Math.abs(to - from) == 2) {
+            moveCastlingRook(from, to, false);
         }
 
-        // 2. Generate All Possible Moves for the Team
-        Collection<ChessMove> possibleMoves = getAllPossibleMoves(teamColor);
+        castlingRights &= CASTLING_KEPT[from] & CASTLING_KEPT[to];
+        enPassantSquare = pawnMove && Math.abs(to - from) == 16 ? capturableSkippedSquare(from, to) : -1;
+        halfmoveClock = pawnMove || captured >= 0 ? 0 : halfmoveClock + 1;
+        if (currentTeamTurn == TeamColor.BLACK) {
+            fullmoveNumber++;
+        }
+        currentTeamTurn = opponent(currentTeamTurn);
+    }
 
-        // 3. Verify if Any Move Can Evade Check
-        for (ChessMove move : possibleMoves) {
-            makeTempMove(move); // Simulate the move
+    // The rook jumps from its corner to the square the king passed over, or back again when undoing
+    private void moveCastlingRook(int kingFrom, int kingTo, boolean undo) {
+        int corner = kingTo > kingFrom ? kingFrom + 3 : kingFrom - 4;
+        int passed = (kingFrom + kingTo) / 2;
+        int rook = board.pieceAt(undo ? passed : corner);
+        board.removePiece(undo ? passed : corner, rook);
+        board.setPiece(undo ? corner : passed, rook);
+    }
 
-            if (!isInCheck(teamColor)) { // If the move takes the king out of check
-                undoTempMove(move); // Undo the move
-                return false;  // It's not checkmate since the king can evade check.
-            }
+    // The square a double pawn move skipped, but only if an enemy pawn stands ready to capture
+    // there; otherwise positions that can't differ would get different hash keys
+    private int capturableSkippedSquare(int from, int to) {
+        int skipped = (from + to) / 2;
+        TeamColor mover = from < to ? TeamColor.WHITE : TeamColor.BLACK;
+        long enemyPawns = board.pieces(opponent(mover), ChessPiece.PieceType.PAWN);
+        return (Bitboards.PAWN_ATTACKS[mover.ordinal()][skipped] & enemyPawns) != 0 ? skipped : -1;
+    }
+
+    /**
+     * Takes back the last move made with doMove
+     */
+    void undoMove() {
+        int move = undoStack.topMove();
+        int state = undoStack.topState();
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+
+        int moved = board.pieceAt(to);
+        board.removePiece(to, moved);
+        // A promoted piece goes back to being a pawn
+        int restored = PackedMove.promotion(move) == null ? moved
+                : ChessPiece.index(ChessPiece.ofIndex(moved).getTeamColor(), ChessPiece.PieceType.PAWN);
+        board.setPiece(from, restored);
+        ChessPiece.PieceType type = ChessPiece.ofIndex(restored).getPieceType();
+        if (type == ChessPiece.PieceType.KING && Math.abs(to - from) == 2) {
+            moveCastlingRook(from, to, true);
+        }
+        int captured = UndoStack.capturedIndex(state);
+        if (captured >= 0) {
+            boolean enPassant = type == ChessPiece.PieceType.PAWN && to == UndoStack.enPassantSquare(state);
+            board.setPiece(enPassant ? PackedMove.enPassantVictim(from, to) : to, captured);
+        }
 
-            undoTempMove(move); // Undo the move
+        castlingRights = UndoStack.castlingRights(state);
+        enPassantSquare = UndoStack.enPassantSquare(state);
+        halfmoveClock = UndoStack.halfmoveClock(state);
+        currentTeamTurn = opponent(currentTeamTurn);
+        if (currentTeamTurn == TeamColor.BLACK) {
+            fullmoveNumber--;
         }
+        undoStack.pop(board);
+        if (undoStack.size() < historyTop) {
+            moveHistorySize--;
+            historyTop--;
+            history = history != null && history.size() == moveHistorySize + 1 ? history.previous() : null;
+            publishSnapshot();
+        }
+    }
 
-        // 4. Determine Checkmate
-        return true; // If no moves can take the king out of check, it's checkmate.
+    int castlingRights() {
+        return castlingRights;
     }
 
     /**
-     * Generate all possible moves for the specified team.
-     *
-     * @param teamColor the color of the team
-     * @return a collection of all possible moves
+     * @return the square the side to move could capture en passant onto, or -1
      */
-    private Collection<ChessMove> getAllPossibleMoves(TeamColor teamColor) { //helper function
-        Collection<ChessMove> allMoves = new ArrayList<>();
-        // Traverse the entire board
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = board.getPiece(position);
-                // If the piece belongs to the team, get its valid moves
-                if (piece != null && piece.getTeamColor() == teamColor) {
-                    Collection<ChessMove> pieceMoves = piece.pieceMoves(board, position);
-                    if (pieceMoves != null) {
-                        allMoves.addAll(pieceMoves);
-                    }
-                }
-            }
-        }
-        return allMoves;
+    int enPassantSquare() {
+        return enPassantSquare;
+    }
+
+    int halfmoveClock() {
+        return halfmoveClock;
+    }
+
+    int fullmoveNumber() {
+        return fullmoveNumber;
     }
 
-    // Store the original and temporary state of the squares for undoing moves
-    private Map<ChessPosition, ChessPiece> originalState = new HashMap<>();
-    private Map<ChessPosition, ChessPiece> temporaryState = new HashMap<>();
+    /**
+     * @return the position in Forsyth-Edwards Notation, e.g.
+     * "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1"
+     */
+    public String toFen() {
+        return Fen.format(this);
+    }
 
     /**
-     * Simulates making a move on the board.
+     * Builds a game from a FEN string. The move counters may be left off.
      *
-     * @param move the move to make
+     * @throws IllegalArgumentException if the string isn't a well-formed FEN position
      */
-    private void makeTempMove(ChessMove move) { //more helpers
-        ChessPosition start = move.getStartPosition();
-        ChessPosition end = move.getEndPosition();
-        ChessPiece movingPiece = board.getPiece(start);
+    public static ChessGame fromFen(String fen) {
+        return Fen.parse(fen);
+    }
 
-        // Save the original state
-        originalState.put(start, movingPiece);
-        originalState.put(end, board.getPiece(end));
+    /**
+     * @return true once a hundred plies have passed without a capture or pawn move,
+     * so either player may claim a draw under the fifty-move rule
+     */
+    public boolean isFiftyMoveDraw() {
+        return halfmoveClock >= 100;
+    }
 
-        // Make the move on the board
-        board.addPiece(end, movingPiece); // Move the piece to the new position
-        board.addPiece(start, null); // Remove the piece from the original position
+    /**
+     * The current position has occurred three times with the same side to move,
+     * castling rights and en passant options, so either player may claim a draw.
+     * <p>
+     * A capture or pawn move can never be undone, so only the plies since the
+     * halfmove clock last reset can repeat, and the search never looks further
+     * back than that. Only moves made since the game was created or its board
+     * last set are known.
+     */
+    public boolean isThreefoldRepetition() {
+        return undoStack.repetitions(getZobristKey(), halfmoveClock) >= 2;
+    }
 
-        // Save the temporary state
-        temporaryState.put(end, movingPiece);
-        temporaryState.put(start, board.getPiece(start));
+    /**
+     * Like isThreefoldRepetition, but true from the first repeat. A search can
+     * treat that as a draw, since whichever side could avoid it gains nothing by
+     * going round again.
+     */
+    boolean isRepeated() {
+        return undoStack.repetitions(getZobristKey(), halfmoveClock) >= 1;
+    }
+
+    /**
+     * A separate game in the same position that has seen the same earlier
+     * positions, so it can be searched without disturbing this one
+     */
+    ChessGame copy() {
+        ChessGame copy = replay(getStartFen(), moveHistory, moveHistorySize, false, getZobristKey(), halfmoveClock);
+        return copy != null ? copy : Fen.parse(toFen());
     }
 
     /**
-     * Undoes a simulated move, restoring the board to its previous state.
+     * @return whether playing getMoveHistory from getStartFen reaches this
+     * position, which it doesn't once the position is edited after a move,
+     * e.g. with setTeamTurn
+     */
+    public boolean isHistoryReplayable() {
+        return replay(getStartFen(), moveHistory, moveHistorySize, false, getZobristKey(), halfmoveClock) != null;
+    }
+
+    /**
+     * Plays the first count moves on a new game from startFen, onto its move
+     * history too if record is set, or just so its undo stack knows the
+     * earlier positions
      *
-     * @param move the move to undo
+     * @return the game, or null if the moves don't reach the position with
+     * the given key and halfmove clock
      */
-    private void undoTempMove(ChessMove move) { //more helpers
-        ChessPosition start = move.getStartPosition();
-        ChessPosition end = move.getEndPosition();
+    static ChessGame replay(String startFen, int[] moves, int count, boolean record, long key, int halfmoveClock) {
+        ChessGame game = Fen.parse(startFen);
+        for (int i = 0; i < count; i++) {
+            if (record) {
+                game.playMove(moves[i]);
+            } else {
+                game.doMove(moves[i]);
+            }
+        }
+        // The history can't be replayed if the position was edited after it, e.g. with setTeamTurn
+        return game.getZobristKey() == key && game.halfmoveClock == halfmoveClock ? game : null;
+    }
 
-        // Restore the pieces to their original positions
-        board.addPiece(start, originalState.get(start));
-        board.addPiece(end, originalState.get(end));
+    /**
+     * @return a 64-bit Zobrist hash of the position: the board's piece key plus the
+     * side to move, castling rights and en passant file
+     */
+    public long getZobristKey() {
+        long key = board.getZobristKey() ^ Zobrist.CASTLING[castlingRights];
+        if (currentTeamTurn == TeamColor.BLACK) {
+            key ^= Zobrist.BLACK_TO_MOVE;
+        }
+        if (enPassantSquare >= 0) {
+            key ^= Zobrist.EN_PASSANT_FILE[enPassantSquare & 7];
+        }
+        return key;
+    }
 
-        // Clear the saved states as they are no longer needed
-        originalState.remove(start);
-        originalState.remove(end);
-        temporaryState.remove(start);
-        temporaryState.remove(end);
+    static TeamColor opponent(TeamColor teamColor) {
+        return (teamColor == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
     }
 
 
     /**
-     * Determines if the given team is in stalemate, which here is defined as having
-     * no valid moves
+     * Determines if the given team is in check
      *
-     * @param teamColor which team to check for stalemate
-     * @return True if the specified team is in stalemate, otherwise false
+     * @param teamColor which team to check for check
+     * @return True if the specified team is in check
      */
-    public boolean isInStalemate(TeamColor teamColor) {
-        // If the team is in check, it's not a stalemate.
-        if (isInCheck(teamColor)) {
+    public boolean isInCheck(TeamColor teamColor) {
+        int kingSquare = board.kingSquare(teamColor);
+        if (kingSquare < 0) {
+            // King not found, should not happen if the board is in a valid state
             return false;
         }
 
-        // Get all possible moves for the team
-        Collection<ChessMove> possibleMoves = getAllPossibleMoves(teamColor);
+        // The King is in check if its square is on the opposing team's attack map
+        return board.isSquareAttacked(kingSquare, opponent(teamColor));
+    }
 
-        // Check if there's any legal move available
-        for (ChessMove move : possibleMoves) {
-            makeTempMove(move); // Simulate the move
 
-            // If after making a move, the king is not in check, then it's not a stalemate
-            if (!isInCheck(teamColor)) {
-                undoTempMove(move); // Undo the move
-                return false;  // There's at least one valid move, so it's not stalemate.
-            }
 
-            undoTempMove(move); // Undo the move
+    /**
+     * Works out check, checkmate and stalemate together: one look at the attack
+     * map for check, then one legal move generation pass that stops at the
+     * first legal move it finds
+     *
+     * @param teamColor which team to get the status of
+     * @return the team's status
+     */
+    public GameStatus getGameStatus(TeamColor teamColor) {
+        boolean inCheck = isInCheck(teamColor);
+        if (MoveGenerator.hasLegalMove(this, teamColor)) {
+            return inCheck ? GameStatus.CHECK : GameStatus.NORMAL;
         }
+        return inCheck ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+    }
 
-        // If no valid moves are available, it's a stalemate.
-        return true;
+    /**
+     * Determines if the given team is in checkmate
+     *
+     * @param teamColor which team to check for checkmate
+     * @return True if the specified team is in checkmate
+     */
+    public boolean isInCheckmate(TeamColor teamColor) {
+        return getGameStatus(teamColor) == GameStatus.CHECKMATE;
+    }
+
+    /**
+     * Determines if the given team is in stalemate, which here is defined as having
+     * no valid moves
+     *
+     * @param teamColor which team to check for stalemate
+     * @return True if the specified team is in stalemate, otherwise false
+     */
+    public boolean isInStalemate(TeamColor teamColor) {
+        return getGameStatus(teamColor) == GameStatus.STALEMATE;
     }
 
     /**
@@ -326,6 +500,40 @@ public class ChessGame {
      */
     public void setBoard(ChessBoard board) {
         this.board = board;
+        // A king and rook still on their home squares are assumed not to have moved
+        this.castlingRights = castlingRightsFromPlacement(board);
+        this.enPassantSquare = -1;
+        this.halfmoveClock = 0;
+        this.fullmoveNumber = 1;
+        this.undoStack.clear();
+        this.moveHistorySize = 0;
+        this.startFen = null;
+        this.historyTop = 0;
+        publishSnapshot();
+    }
+
+    // For loading a position whose move history isn't known, e.g. from FEN
+    void setPositionState(int castlingRights, int enPassantSquare, int halfmoveClock, int fullmoveNumber) {
+        this.castlingRights = castlingRights;
+        this.enPassantSquare = enPassantSquare;
+        this.halfmoveClock = halfmoveClock;
+        this.fullmoveNumber = fullmoveNumber;
+        publishSnapshot();
+    }
+
+    private static int castlingRightsFromPlacement(ChessBoard board) {
+        int rights = 0;
+        long whiteRooks = board.pieces(TeamColor.WHITE, ChessPiece.PieceType.ROOK);
+        long blackRooks = board.pieces(TeamColor.BLACK, ChessPiece.PieceType.ROOK);
+        if ((board.pieces(TeamColor.WHITE, ChessPiece.PieceType.KING) & Bitboards.bit(Bitboards.square(1, 5))) != 0) {
+            rights |= (whiteRooks & Bitboards.bit(Bitboards.square(1, 8))) != 0 ? CASTLE_WHITE_KINGSIDE : 0;
+            rights |= (whiteRooks & Bitboards.bit(Bitboards.square(1, 1))) != 0 ? CASTLE_WHITE_QUEENSIDE : 0;
+        }
+        if ((board.pieces(TeamColor.BLACK, ChessPiece.PieceType.KING) & Bitboards.bit(Bitboards.square(8, 5))) != 0) {
+            rights |= (blackRooks & Bitboards.bit(Bitboards.square(8, 8))) != 0 ? CASTLE_BLACK_KINGSIDE : 0;
+            rights |= (blackRooks & Bitboards.bit(Bitboards.square(8, 1))) != 0 ? CASTLE_BLACK_QUEENSIDE : 0;
+        }
+        return rights;
     }
 
     /**
@@ -342,11 +550,14 @@ public class ChessGame {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         ChessGame chessGame = (ChessGame) o;
-        return Objects.equals(board, chessGame.board) && currentTeamTurn == chessGame.currentTeamTurn && Objects.equals(originalState, chessGame.originalState) && Objects.equals(temporaryState, chessGame.temporaryState);
+        return getZobristKey() == chessGame.getZobristKey() && Objects.equals(board, chessGame.board) && currentTeamTurn == chessGame.currentTeamTurn
+                && castlingRights == chessGame.castlingRights && enPassantSquare == chessGame.enPassantSquare
+                && halfmoveClock == chessGame.halfmoveClock;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(board, currentTeamTurn, originalState, temporaryState);
+        long key = getZobristKey();
+        return (int) (key ^ (key >>> 32)) * 31 + halfmoveClock;
     }
 }
@@ -0,0 +1,39 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Gson form of a ChessGame: its fields as Gson writes them reflectively, with
+ * the loaded game's first snapshot published as soon as they're read, on the
+ * loading thread. Games made any other way publish one as they're set up, so
+ * ChessGame.snapshot only ever reads it.
+ */
+final class ChessGameAdapter implements TypeAdapterFactory {
+
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        TypeAdapter<T> fields = gson.getDelegateAdapter(this, type);
+        return new TypeAdapter<>() {
+            @Override
+            public void write(JsonWriter out, T value) throws IOException {
+                fields.write(out, value);
+            }
+
+            @Override
+            public T read(JsonReader in) throws IOException {
+                T value = fields.read(in);
+                if (value instanceof ChessGame game) {
+                    game.publishSnapshot();
+                }
+                return value;
+            }
+        };
+    }
+}
@@ -1,7 +1,6 @@
 package chess;
 
 import java.util.Collection;
-import java.util.Objects;
 
 /**
  * Represents a single chess piece
@@ -14,11 +13,38 @@ public class ChessPiece {
     private final ChessGame.TeamColor pieceColor;
     private final PieceType type;
 
+    // Only twelve different pieces exist, indexed by team * 6 + piece type
+    private static final ChessPiece[] PIECES = new ChessPiece[12];
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (PieceType type : PieceType.values()) {
+                PIECES[index(color, type)] = new ChessPiece(color, type);
+            }
+        }
+    }
+
     public ChessPiece(ChessGame.TeamColor pieceColor, PieceType type) {
         this.pieceColor = pieceColor;
         this.type = type;
     }
 
+    /**
+     * Gets the shared instance for a kind of piece; pieces are immutable, so
+     * there is no need to create more than one of each
+     */
+    public static ChessPiece of(ChessGame.TeamColor pieceColor, PieceType type) {
+        return PIECES[index(pieceColor, type)];
+    }
+
+    static ChessPiece ofIndex(int index) {
+        return PIECES[index];
+    }
+
+    static int index(ChessGame.TeamColor pieceColor, PieceType type) {
+        return pieceColor.ordinal() * 6 + type.ordinal();
+    }
+
     /**
      * The various different chess piece options
      */
@@ -79,7 +105,7 @@ public class ChessPiece {
 
     @Override
     public int hashCode() {
-        return Objects.hash(pieceColor, type);
+        return index(pieceColor, type);
     }
 }
 
@@ -1,7 +1,5 @@
 package chess;
 
-import java.util.Objects;
-
 /**
  * Represents a single square position on a chess board
  * <p>
@@ -13,11 +11,35 @@ public class ChessPosition {
     private final int row;
     private final int col;
 
+    // There are only 64 squares, so on-board positions are shared instances
+    private static final ChessPosition[] SQUARES = new ChessPosition[64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            SQUARES[square] = new ChessPosition(Bitboards.row(square), Bitboards.column(square));
+        }
+    }
+
     public ChessPosition(int row, int col) {
         this.row = row;
         this.col = col;
     }
 
+    /**
+     * Gets the shared position for a square, only creating a new one for
+     * coordinates that are off the board
+     *
+     * @param row 1 codes for the bottom row
+     * @param col 1 codes for the left column
+     */
+    public static ChessPosition of(int row, int col) {
+        return Bitboards.onBoard(row, col) ? SQUARES[Bitboards.square(row, col)] : new ChessPosition(row, col);
+    }
+
+    static ChessPosition ofSquare(int square) {
+        return SQUARES[square];
+    }
+
     /**
      * @return which row this position is in
      * 1 codes for the bottom row
@@ -45,7 +67,7 @@ public class ChessPosition {
 
     @Override
     public int hashCode() {
-        return Objects.hash(row, col);
+        return 31 * row + col;
     }
 }
 
@@ -0,0 +1,285 @@
+package chess;
+
+/**
+ * Static evaluation for Search: how good the position looks without playing
+ * any moves, in centipawns from the point of view of the side to move.
+ * <p>
+ * Every term has a middlegame and an endgame value, packed into one int (see
+ * score), and the two are blended by how much material is left: a king
+ * should hide while queens are on and walk to the centre once they're off.
+ * The terms are material and piece-square tables, which ChessBoard keeps up
+ * to date on every piece it places or removes so they cost nothing here,
+ * pawn structure, which a PawnHashTable can cache, and king safety, which is
+ * worked out from the bitboards each time.
+ */
+final class Evaluation {
+    // Phase weights by PieceType ordinal: K, Q, B, N, R, P. All pieces on the board is phase 24
+    private static final int[] PHASE_WEIGHTS = {0, 4, 1, 1, 2, 0};
+    static final int MAX_PHASE = 24;
+
+    // Material by PieceType ordinal, middlegame then endgame
+    private static final int[] MIDDLEGAME_VALUES = {0, 1025, 365, 337, 477, 82};
+    private static final int[] ENDGAME_VALUES = {0, 936, 297, 281, 512, 94};
+
+    // Piece-square tables from white's side, laid out as the board is seen: a8 first, h1 last
+    private static final int[][] MIDDLEGAME_TABLES = {
+            { // King: tucked away behind its pawns
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -20, -30, -30, -40, -40, -30, -30, -20,
+                    -10, -20, -20, -20, -20, -20, -20, -10,
+                    20, 20, 0, 0, 0, 0, 20, 20,
+                    20, 30, 10, 0, 0, 10, 30, 20},
+            { // Queen
+                    -20, -10, -10, -5, -5, -10, -10, -20,
+                    -10, 0, 0, 0, 0, 0, 0, -10,
+                    -10, 0, 5, 5, 5, 5, 0, -10,
+                    -5, 0, 5, 5, 5, 5, 0, -5,
+                    0, 0, 5, 5, 5, 5, 0, -5,
+                    -10, 5, 5, 5, 5, 5, 0, -10,
+                    -10, 0, 5, 0, 0, 0, 0, -10,
+                    -20, -10, -10, -5, -5, -10, -10, -20},
+            { // Bishop
+                    -20, -10, -10, -10, -10, -10, -10, -20,
+                    -10, 0, 0, 0, 0, 0, 0, -10,
+                    -10, 0, 5, 10, 10, 5, 0, -10,
+                    -10, 5, 5, 10, 10, 5, 5, -10,
+                    -10, 0, 10, 10, 10, 10, 0, -10,
+                    -10, 10, 10, 10, 10, 10, 10, -10,
+                    -10, 5, 0, 0, 0, 0, 5, -10,
+                    -20, -10, -10, -10, -10, -10, -10, -20},
+            { // Knight
+                    -50, -40, -30, -30, -30, -30, -40, -50,
+                    -40, -20, 0, 0, 0, 0, -20, -40,
+                    -30, 0, 10, 15, 15, 10, 0, -30,
+                    -30, 5, 15, 20, 20, 15, 5, -30,
+                    -30, 0, 15, 20, 20, 15, 0, -30,
+                    -30, 5, 10, 15, 15, 10, 5, -30,
+                    -40, -20, 0, 5, 5, 0, -20, -40,
+                    -50, -40, -30, -30, -30, -30, -40, -50},
+            { // Rook
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    5, 10, 10, 10, 10, 10, 10, 5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    0, 0, 0, 5, 5, 0, 0, 0},
+            { // Pawn
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    50, 50, 50, 50, 50, 50, 50, 50,
+                    10, 10, 20, 30, 30, 20, 10, 10,
+                    5, 5, 10, 25, 25, 10, 5, 5,
+                    0, 0, 0, 20, 20, 0, 0, 0,
+                    5, -5, -10, 0, 0, -10, -5, 5,
+                    5, 10, 10, -20, -20, 10, 10, 5,
+                    0, 0, 0, 0, 0, 0, 0, 0},
+    };
+
+    // Pieces still like the centre in the endgame; the king joins them and pawns just want to run
+    private static final int[][] ENDGAME_TABLES = {
+            { // King
+                    -50, -40, -30, -20, -20, -30, -40, -50,
+                    -30, -20, -10, 0, 0, -10, -20, -30,
+                    -30, -10, 20, 30, 30, 20, -10, -30,
+                    -30, -10, 30, 40, 40, 30, -10, -30,
+                    -30, -10, 30, 40, 40, 30, -10, -30,
+                    -30, -10, 20, 30, 30, 20, -10, -30,
+                    -30, -30, 0, 0, 0, 0, -30, -30,
+                    -50, -30, -30, -30, -30, -30, -30, -50},
+            MIDDLEGAME_TABLES[1],
+            MIDDLEGAME_TABLES[2],
+            MIDDLEGAME_TABLES[3],
+            MIDDLEGAME_TABLES[4],
+            { // Pawn
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    80, 80, 80, 80, 80, 80, 80, 80,
+                    50, 50, 50, 50, 50, 50, 50, 50,
+                    30, 30, 30, 30, 30, 30, 30, 30,
+                    20, 20, 20, 20, 20, 20, 20, 20,
+                    10, 10, 10, 10, 10, 10, 10, 10,
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    0, 0, 0, 0, 0, 0, 0, 0},
+    };
+
+    /**
+     * Packed material plus piece-square score of each piece index on each
+     * square: positive for white pieces, negative for black
+     */
+    static final int[][] PIECE_SQUARE = new int[12][64];
+    /**
+     * How much each piece index counts towards the game phase
+     */
+    static final int[] PHASE = new int[12];
+
+    private static final int DOUBLED_PAWN = score(-10, -20);
+    private static final int ISOLATED_PAWN = score(-10, -15);
+    // By rank counted from the pawn's own side, so index 6 is one step from promoting
+    private static final int[] PASSED_PAWN = {
+            0, score(5, 10), score(10, 15), score(15, 25), score(25, 45), score(40, 75), score(65, 120), 0
+    };
+    private static final int PAWN_SHIELD = score(12, 0);
+    // Per king zone square attacked, by PieceType ordinal
+    private static final int[] KING_ATTACK_WEIGHTS = {0, 5, 2, 2, 3, 0};
+    private static final int KING_ATTACK_UNIT = score(-8, 0);
+
+    private static final long[] ADJACENT_FILES = new long[8];
+    // Squares in front of a pawn, on its file and the two beside it, that an enemy pawn would have to be on to stop it
+    private static final long[][] PASSED_PAWN_SPANS = new long[2][64];
+    // The squares one and two ranks in front of a king on its own file and the two beside it
+    private static final long[][] SHIELDS = new long[2][64];
+
+    static {
+        ChessPiece.PieceType[] types = ChessPiece.PieceType.values();
+        for (ChessPiece.PieceType type : types) {
+            int t = type.ordinal();
+            int whiteIndex = ChessPiece.index(ChessGame.TeamColor.WHITE, type);
+            int blackIndex = ChessPiece.index(ChessGame.TeamColor.BLACK, type);
+            for (int square = 0; square < 64; square++) {
+                // The tables put a8 first; for black the board is flipped, so a1 reads the a8 entry
+                int whiteEntry = square ^ 56;
+                int blackEntry = square;
+                PIECE_SQUARE[whiteIndex][square] = score(MIDDLEGAME_VALUES[t] + MIDDLEGAME_TABLES[t][whiteEntry],
+                        ENDGAME_VALUES[t] + ENDGAME_TABLES[t][whiteEntry]);
+                PIECE_SQUARE[blackIndex][square] = -score(MIDDLEGAME_VALUES[t] + MIDDLEGAME_TABLES[t][blackEntry],
+                        ENDGAME_VALUES[t] + ENDGAME_TABLES[t][blackEntry]);
+            }
+            PHASE[whiteIndex] = PHASE_WEIGHTS[t];
+            PHASE[blackIndex] = PHASE_WEIGHTS[t];
+        }
+
+        for (int file = 0; file < 8; file++) {
+            ADJACENT_FILES[file] = (file > 0 ? Bitboards.FILE_A << (file - 1) : 0)
+                    | (file < 7 ? Bitboards.FILE_A << (file + 1) : 0);
+        }
+        for (int square = 0; square < 64; square++) {
+            int file = square & 7;
+            long span = ADJACENT_FILES[file] | (Bitboards.FILE_A << file);
+            int rank = square >>> 3;
+            // Everything on ranks above (white) or below (black) this one
+            long above = rank == 7 ? 0 : -1L << ((rank + 1) * 8);
+            long below = rank == 0 ? 0 : -1L >>> ((8 - rank) * 8);
+            PASSED_PAWN_SPANS[0][square] = span & above;
+            PASSED_PAWN_SPANS[1][square] = span & below;
+            long twoAbove = rank >= 5 ? above : above & ~(-1L << ((rank + 3) * 8));
+            long twoBelow = rank <= 1 ? below : below & (-1L << ((rank - 2) * 8));
+            SHIELDS[0][square] = span & twoAbove;
+            SHIELDS[1][square] = span & twoBelow;
+        }
+    }
+
+    private Evaluation() {
+    }
+
+    /**
+     * Packs a middlegame and an endgame value into one int, so terms can be
+     * added up once for both. The endgame value sits in the low 16 bits.
+     */
+    static int score(int middlegame, int endgame) {
+        return (middlegame << 16) + endgame;
+    }
+
+    static int middlegame(int score) {
+        return (score + 0x8000) >> 16;
+    }
+
+    static int endgame(int score) {
+        return (short) score;
+    }
+
+    /**
+     * @return the evaluation, positive when the side to move is better
+     */
+    static int evaluate(ChessGame game) {
+        return evaluate(game, null);
+    }
+
+    /**
+     * @param pawns where to look up pawn structure scores, or null to work them out
+     * @return the evaluation, positive when the side to move is better
+     */
+    static int evaluate(ChessGame game, PawnHashTable pawns) {
+        ChessBoard board = game.getBoard();
+        long whitePawns = board.pieces(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
+        long blackPawns = board.pieces(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN);
+        int score = board.pieceSquareScore()
+                + (pawns == null ? pawnStructure(whitePawns, blackPawns)
+                : pawns.pawnStructure(board.pawnKey(), whitePawns, blackPawns))
+                + kingSafety(board, ChessGame.TeamColor.WHITE) - kingSafety(board, ChessGame.TeamColor.BLACK);
+        int phase = Math.min(board.phase(), MAX_PHASE);
+        int tapered = (middlegame(score) * phase + endgame(score) * (MAX_PHASE - phase)) / MAX_PHASE;
+        return game.getTeamTurn() == ChessGame.TeamColor.WHITE ? tapered : -tapered;
+    }
+
+    /**
+     * @return the packed score of doubled, isolated and passed pawns, white minus black
+     */
+    static int pawnStructure(long whitePawns, long blackPawns) {
+        return pawnTerms(whitePawns, blackPawns, 0) - pawnTerms(blackPawns, whitePawns, 1);
+    }
+
+    private static int pawnTerms(long pawns, long enemyPawns, int color) {
+        int score = 0;
+        for (int file = 0; file < 8; file++) {
+            int onFile = Long.bitCount(pawns & (Bitboards.FILE_A << file));
+            if (onFile > 1) {
+                score += DOUBLED_PAWN * (onFile - 1);
+            }
+            if (onFile > 0 && (pawns & ADJACENT_FILES[file]) == 0) {
+                score += ISOLATED_PAWN * onFile;
+            }
+        }
+        for (long set = pawns; set != 0; set &= set - 1) {
+            int square = Long.numberOfTrailingZeros(set);
+            if ((PASSED_PAWN_SPANS[color][square] & enemyPawns) == 0) {
+                int rank = square >>> 3;
+                score += PASSED_PAWN[color == 0 ? rank : 7 - rank];
+            }
+        }
+        return score;
+    }
+
+    /**
+     * @return the packed score of the team's pawn shield, less a penalty for
+     * enemy pieces bearing on the squares around its king
+     */
+    private static int kingSafety(ChessBoard board, ChessGame.TeamColor team) {
+        int king = board.kingSquare(team);
+        if (king < 0) {
+            return 0;
+        }
+        long shield = SHIELDS[team.ordinal()][king] & board.pieces(team, ChessPiece.PieceType.PAWN);
+        int score = PAWN_SHIELD * Long.bitCount(shield);
+
+        ChessGame.TeamColor enemy = ChessGame.opponent(team);
+        long zone = Bitboards.KING_ATTACKS[king] | Bitboards.bit(king);
+        long occupied = board.occupied();
+        int attackers = 0;
+        int units = 0;
+        for (long set = board.pieces(enemy, ChessPiece.PieceType.KNIGHT); set != 0; set &= set - 1) {
+            long hits = Bitboards.KNIGHT_ATTACKS[Long.numberOfTrailingZeros(set)] & zone;
+            attackers += hits != 0 ? 1 : 0;
+            units += KING_ATTACK_WEIGHTS[ChessPiece.PieceType.KNIGHT.ordinal()] * Long.bitCount(hits);
+        }
+        for (long set = board.pieces(enemy, ChessPiece.PieceType.BISHOP); set != 0; set &= set - 1) {
+            long hits = Bitboards.bishopAttacks(Long.numberOfTrailingZeros(set), occupied) & zone;
+            attackers += hits != 0 ? 1 : 0;
+            units += KING_ATTACK_WEIGHTS[ChessPiece.PieceType.BISHOP.ordinal()] * Long.bitCount(hits);
+        }
+        for (long set = board.pieces(enemy, ChessPiece.PieceType.ROOK); set != 0; set &= set - 1) {
+            long hits = Bitboards.rookAttacks(Long.numberOfTrailingZeros(set), occupied) & zone;
+            attackers += hits != 0 ? 1 : 0;
+            units += KING_ATTACK_WEIGHTS[ChessPiece.PieceType.ROOK.ordinal()] * Long.bitCount(hits);
+        }
+        for (long set = board.pieces(enemy, ChessPiece.PieceType.QUEEN); set != 0; set &= set - 1) {
+            long hits = Bitboards.queenAttacks(Long.numberOfTrailingZeros(set), occupied) & zone;
+            attackers += hits != 0 ? 1 : 0;
+            units += KING_ATTACK_WEIGHTS[ChessPiece.PieceType.QUEEN.ordinal()] * Long.bitCount(hits);
+        }
+        // A lone attacker can rarely do much on its own
+        return attackers >= 2 ? score + KING_ATTACK_UNIT * units : score;
+    }
+}
@@ -0,0 +1,180 @@
+package chess;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation, e.g. the starting position
+ * "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1".
+ */
+final class Fen {
+    static final String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static final String PIECE_CHARS = "KQBNRPkqbnrp";
+
+    private Fen() {
+    }
+
+    /**
+     * Builds a game from a FEN string. The move counters may be left off.
+     *
+     * @throws IllegalArgumentException if the string isn't a well-formed FEN position
+     */
+    static ChessGame parse(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 4) {
+            throw new IllegalArgumentException("FEN needs at least placement, side, castling and en passant: " + fen);
+        }
+
+        ChessBoard board = parsePlacement(fields[0]);
+        ChessGame.TeamColor turn = switch (fields[1]) {
+            case "w" -> ChessGame.TeamColor.WHITE;
+            case "b" -> ChessGame.TeamColor.BLACK;
+            default -> throw new IllegalArgumentException("Bad side to move in FEN: " + fields[1]);
+        };
+
+        int castlingRights = 0;
+        for (char c : fields[2].toCharArray()) {
+            castlingRights |= switch (c) {
+                case 'K' -> ChessGame.CASTLE_WHITE_KINGSIDE;
+                case 'Q' -> ChessGame.CASTLE_WHITE_QUEENSIDE;
+                case 'k' -> ChessGame.CASTLE_BLACK_KINGSIDE;
+                case 'q' -> ChessGame.CASTLE_BLACK_QUEENSIDE;
+                case '-' -> 0;
+                default -> throw new IllegalArgumentException("Bad castling rights in FEN: " + fields[2]);
+            };
+        }
+
+        int enPassantSquare = -1;
+        if (!fields[3].equals("-")) {
+            if (fields[3].length() != 2) {
+                throw new IllegalArgumentException("Bad en passant square in FEN: " + fields[3]);
+            }
+            int epCol = fields[3].charAt(0) - 'a' + 1;
+            int epRow = fields[3].charAt(1) - '0';
+            if (!Bitboards.onBoard(epRow, epCol)) {
+                throw new IllegalArgumentException("Bad en passant square in FEN: " + fields[3]);
+            }
+            enPassantSquare = Bitboards.square(epRow, epCol);
+            // Like ChessGame, only keep the square when a pawn could actually capture there
+            ChessGame.TeamColor pusher = ChessGame.opponent(turn);
+            if ((Bitboards.PAWN_ATTACKS[pusher.ordinal()][enPassantSquare] & board.pieces(turn, ChessPiece.PieceType.PAWN)) == 0) {
+                enPassantSquare = -1;
+            }
+        }
+
+        int halfmoveClock = fields.length > 4 ? parseCounter(fields[4], "halfmove clock") : 0;
+        int fullmoveNumber = fields.length > 5 ? Math.max(parseCounter(fields[5], "fullmove number"), 1) : 1;
+
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(turn);
+        game.setPositionState(castlingRights, enPassantSquare, halfmoveClock, fullmoveNumber);
+        return game;
+    }
+
+    /**
+     * Builds a board from the piece placement field alone, e.g. "8/8/8/8/8/8/8/4K2R"
+     *
+     * @throws IllegalArgumentException if the field doesn't describe 8 rows of 8 squares
+     */
+    static ChessBoard parsePlacement(String placement) {
+        ChessBoard board = new ChessBoard();
+        int row = 8;
+        int col = 1;
+        for (char c : placement.toCharArray()) {
+            if (c == '/') {
+                if (col != 9) {
+                    throw new IllegalArgumentException("FEN row " + row + " isn't 8 squares wide: " + placement);
+                }
+                row--;
+                col = 1;
+            } else if (c >= '1' && c <= '8') {
+                col += c - '0';
+            } else {
+                int index = PIECE_CHARS.indexOf(c);
+                if (index < 0 || !Bitboards.onBoard(row, col)) {
+                    throw new IllegalArgumentException("Bad piece placement in FEN: " + placement);
+                }
+                board.setPiece(Bitboards.square(row, col), index);
+                col++;
+            }
+        }
+        if (row != 1 || col != 9) {
+            throw new IllegalArgumentException("FEN placement needs 8 rows of 8 squares: " + placement);
+        }
+        return board;
+    }
+
+    private static int parseCounter(String field, String name) {
+        try {
+            int value = Integer.parseInt(field);
+            if (value >= 0) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Bad " + name + " in FEN: " + field);
+    }
+
+    /**
+     * @return the full six-field FEN string for the game's current position
+     */
+    static String format(ChessGame game) {
+        StringBuilder fen = new StringBuilder(90);
+        appendPlacement(fen, game.getBoard());
+        fen.append(game.getTeamTurn() == ChessGame.TeamColor.WHITE ? " w " : " b ");
+
+        int rights = game.castlingRights();
+        if (rights == 0) {
+            fen.append('-');
+        } else {
+            appendIf(fen, rights, ChessGame.CASTLE_WHITE_KINGSIDE, 'K');
+            appendIf(fen, rights, ChessGame.CASTLE_WHITE_QUEENSIDE, 'Q');
+            appendIf(fen, rights, ChessGame.CASTLE_BLACK_KINGSIDE, 'k');
+            appendIf(fen, rights, ChessGame.CASTLE_BLACK_QUEENSIDE, 'q');
+        }
+
+        int enPassant = game.enPassantSquare();
+        fen.append(' ').append(enPassant < 0 ? "-" : PackedMove.squareName(enPassant));
+        fen.append(' ').append(game.halfmoveClock()).append(' ').append(game.fullmoveNumber());
+        return fen.toString();
+    }
+
+    /**
+     * @return the piece placement field for the board, ranks 8 down to 1
+     */
+    static String formatPlacement(ChessBoard board) {
+        StringBuilder placement = new StringBuilder(71);
+        appendPlacement(placement, board);
+        return placement.toString();
+    }
+
+    private static void appendPlacement(StringBuilder fen, ChessBoard board) {
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int col = 1; col <= 8; col++) {
+                int index = board.pieceAt(Bitboards.square(row, col));
+                if (index < 0) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append(empty);
+                    empty = 0;
+                }
+                fen.append(PIECE_CHARS.charAt(index));
+            }
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (row > 1) {
+                fen.append('/');
+            }
+        }
+    }
+
+    private static void appendIf(StringBuilder fen, int rights, int right, char symbol) {
+        if ((rights & right) != 0) {
+            fen.append(symbol);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package chess;
+
+import java.util.Base64;
+
+/**
+ * A compact binary form of a game's position, for storage and the wire.
+ * <p>
+ * Layout, all multi-byte values big-endian:
+ * <pre>
+ * byte 0       format version (1)
+ * bytes 1-8    occupied squares as a bitboard, bit n = square n (a1 = 0)
+ * next n/2     one 4-bit piece index per occupied square in square order,
+ *              high nibble first, padded with a zero nibble when n is odd
+ * next 2       bit 0 black to move, bits 1-4 castling rights,
+ *              bits 5-8 en passant file plus one (0 for none)
+ * next 2       halfmove clock
+ * next 2       fullmove number
+ * </pre>
+ * With at most 32 pieces that is 31 bytes at most, and no reflection is
+ * involved either way. Like FEN, the move history is not included.
+ */
+public final class GameCodec {
+    private static final byte VERSION = 1;
+    private static final int HEADER_BYTES = 9;
+    private static final int TRAILER_BYTES = 6;
+
+    private GameCodec() {
+    }
+
+    public static byte[] encode(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        long occupied = board.occupied();
+        int pieces = Long.bitCount(occupied);
+        byte[] bytes = new byte[HEADER_BYTES + (pieces + 1) / 2 + TRAILER_BYTES];
+
+        bytes[0] = VERSION;
+        for (int i = 0; i < 8; i++) {
+            bytes[1 + i] = (byte) (occupied >>> (56 - 8 * i));
+        }
+        int nibble = 0;
+        for (long remaining = occupied; remaining != 0; remaining &= remaining - 1) {
+            int index = board.pieceAt(Long.numberOfTrailingZeros(remaining));
+            bytes[HEADER_BYTES + nibble / 2] |= (byte) ((nibble & 1) == 0 ? index << 4 : index);
+            nibble++;
+        }
+
+        int offset = bytes.length - TRAILER_BYTES;
+        int enPassant = game.enPassantSquare();
+        int flags = (game.getTeamTurn() == ChessGame.TeamColor.BLACK ? 1 : 0)
+                | (game.castlingRights() << 1)
+                | ((enPassant < 0 ? 0 : (enPassant & 7) + 1) << 5);
+        putShort(bytes, offset, flags);
+        putShort(bytes, offset + 2, Math.min(game.halfmoveClock(), 0xFFFF));
+        putShort(bytes, offset + 4, Math.min(game.fullmoveNumber(), 0xFFFF));
+        return bytes;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the bytes weren't written by encode
+     */
+    public static ChessGame decode(byte[] bytes) {
+        if (bytes.length < HEADER_BYTES + TRAILER_BYTES || bytes[0] != VERSION) {
+            throw new IllegalArgumentException("Not an encoded chess game");
+        }
+        long occupied = 0L;
+        for (int i = 0; i < 8; i++) {
+            occupied = (occupied << 8) | (bytes[1 + i] & 0xFF);
+        }
+        int pieces = Long.bitCount(occupied);
+        if (bytes.length != HEADER_BYTES + (pieces + 1) / 2 + TRAILER_BYTES) {
+            throw new IllegalArgumentException("Encoded chess game has the wrong length for " + pieces + " pieces");
+        }
+
+        ChessBoard board = new ChessBoard();
+        int nibble = 0;
+        for (long remaining = occupied; remaining != 0; remaining &= remaining - 1) {
+            int packed = bytes[HEADER_BYTES + nibble / 2] & 0xFF;
+            int index = (nibble & 1) == 0 ? packed >>> 4 : packed & 0xF;
+            if (index >= 12) {
+                throw new IllegalArgumentException("Encoded chess game has a bad piece index: " + index);
+            }
+            board.setPiece(Long.numberOfTrailingZeros(remaining), index);
+            nibble++;
+        }
+
+        int offset = bytes.length - TRAILER_BYTES;
+        int flags = getShort(bytes, offset);
+        ChessGame.TeamColor turn = (flags & 1) == 0 ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        int enPassantFile = (flags >>> 5) & 0xF;
+        if (enPassantFile > 8) {
+            throw new IllegalArgumentException("Encoded chess game has a bad en passant file: " + enPassantFile);
+        }
+        // With white to move it was a black pawn that skipped a square on row 6, and vice versa
+        int enPassant = enPassantFile == 0 ? -1
+                : Bitboards.square(turn == ChessGame.TeamColor.WHITE ? 6 : 3, enPassantFile);
+
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(turn);
+        game.setPositionState((flags >>> 1) & 0xF, enPassant, getShort(bytes, offset + 2),
+                Math.max(getShort(bytes, offset + 4), 1));
+        return game;
+    }
+
+    /**
+     * @return encode's bytes as Base64 text, for JSON messages and text columns
+     */
+    public static String encodeBase64(ChessGame game) {
+        return Base64.getEncoder().encodeToString(encode(game));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the text isn't Base64 of an encoded game
+     */
+    public static ChessGame decodeBase64(String text) {
+        return decode(Base64.getDecoder().decode(text));
+    }
+
+    private static void putShort(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 8);
+        bytes[offset + 1] = (byte) value;
+    }
+
+    private static int getShort(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+    }
+}
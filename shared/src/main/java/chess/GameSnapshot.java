@@ -0,0 +1,164 @@
+package chess;
+
+/**
+ * An immutable view of a ChessGame at one moment: the pieces, side to move,
+ * castling and en passant rights, move counters and the moves played so far.
+ * <p>
+ * A game publishes a new snapshot through a volatile field each time a move
+ * is played (see ChessGame.snapshot), so broadcast, persistence and analysis
+ * threads can read a consistent position while the game moves on, without
+ * locking it or copying it themselves. A snapshot is cheap to make: the
+ * board is twelve bitboards, and the move history is a persistent list, so
+ * each snapshot adds one node to the last one's history rather than copying
+ * it.
+ */
+public final class GameSnapshot {
+    /**
+     * Moves played, newest first; every node is shared with the snapshots
+     * taken before it was added
+     */
+    record History(int move, History previous, int size) {
+        /**
+         * @return the history of the first size moves, reusing the known one
+         * when it's this line or this line one move shorter, or null when
+         * there are no moves
+         */
+        static History of(History known, int[] moves, int size) {
+            if (size == 0) {
+                return null;
+            }
+            if (known != null && known.size() == size) {
+                return known;
+            }
+            if (known != null && known.size() == size - 1) {
+                return new History(moves[size - 1], known, size);
+            }
+            History history = null;
+            for (int i = 0; i < size; i++) {
+                history = new History(moves[i], history, i + 1);
+            }
+            return history;
+        }
+    }
+
+    private final long[] pieceSets = new long[12];
+    private final ChessGame.TeamColor teamTurn;
+    private final int castlingRights;
+    private final int enPassantSquare;
+    private final int halfmoveClock;
+    private final int fullmoveNumber;
+    private final long zobristKey;
+    private final String startFen;
+    private final History history;
+
+    GameSnapshot(ChessGame game, ChessBoard board, String startFen, History history) {
+        for (int index = 0; index < pieceSets.length; index++) {
+            ChessPiece piece = ChessPiece.ofIndex(index);
+            pieceSets[index] = board.pieces(piece.getTeamColor(), piece.getPieceType());
+        }
+        this.teamTurn = game.getTeamTurn();
+        this.castlingRights = game.castlingRights();
+        this.enPassantSquare = game.enPassantSquare();
+        this.halfmoveClock = game.halfmoveClock();
+        this.fullmoveNumber = game.fullmoveNumber();
+        this.zobristKey = game.getZobristKey();
+        this.startFen = startFen;
+        this.history = history;
+    }
+
+    /**
+     * @return the piece on the position, or null if it's empty or off the board
+     */
+    public ChessPiece getPiece(ChessPosition position) {
+        if (!Bitboards.onBoard(position)) {
+            return null;
+        }
+        long bit = Bitboards.bit(Bitboards.square(position));
+        for (int index = 0; index < pieceSets.length; index++) {
+            if ((pieceSets[index] & bit) != 0) {
+                return ChessPiece.ofIndex(index);
+            }
+        }
+        return null;
+    }
+
+    public ChessGame.TeamColor getTeamTurn() {
+        return teamTurn;
+    }
+
+    /**
+     * @return the position's Zobrist key, as ChessGame.getZobristKey gave it
+     */
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    /**
+     * @return the number of moves played since the start position
+     */
+    public int moveCount() {
+        return history == null ? 0 : history.size();
+    }
+
+    /**
+     * @return the packed moves played so far, oldest first
+     */
+    public int[] getMoveHistory() {
+        int[] moves = new int[moveCount()];
+        for (History node = history; node != null; node = node.previous()) {
+            moves[node.size() - 1] = node.move();
+        }
+        return moves;
+    }
+
+    /**
+     * @return the FEN of the position the move history starts from
+     */
+    public String getStartFen() {
+        return startFen != null ? startFen : toFen();
+    }
+
+    /**
+     * @return a new board with the snapshot's pieces on it
+     */
+    public ChessBoard getBoard() {
+        ChessBoard board = new ChessBoard();
+        for (int index = 0; index < pieceSets.length; index++) {
+            for (long set = pieceSets[index]; set != 0; set &= set - 1) {
+                board.setPiece(Long.numberOfTrailingZeros(set), index);
+            }
+        }
+        return board;
+    }
+
+    public String toFen() {
+        return Fen.format(positionGame());
+    }
+
+    /**
+     * @return a new game in the snapshot's position with its move history,
+     * for analysis or to carry on playing separately
+     */
+    public ChessGame toGame() {
+        if (startFen == null) {
+            return positionGame();
+        }
+        int[] moves = getMoveHistory();
+        ChessGame game = ChessGame.replay(startFen, moves, moves.length, true, zobristKey, halfmoveClock);
+        return game != null ? game : positionGame();
+    }
+
+    // The position alone, without the moves that led to it
+    private ChessGame positionGame() {
+        ChessGame game = new ChessGame();
+        game.setBoard(getBoard());
+        game.setTeamTurn(teamTurn);
+        game.setPositionState(castlingRights, enPassantSquare, halfmoveClock, fullmoveNumber);
+        return game;
+    }
+
+    @Override
+    public String toString() {
+        return toFen();
+    }
+}
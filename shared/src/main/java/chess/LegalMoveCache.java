@@ -0,0 +1,71 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * The legal moves of each team in the last few positions a ChessGame was
+ * asked about, keyed by the position's Zobrist key.
+ * <p>
+ * Clients highlight a piece's moves, then play one, and the server checks it
+ * again; all of those ask about the same position. Generating a whole team's
+ * moves once costs little more than one piece's, and every later question
+ * about that position is then a key comparison and a scan of the cached list.
+ * The key covers everything legality depends on (pieces, side to move,
+ * castling rights and en passant square), so editing the board or turn simply
+ * misses. Entries are replaced oldest first, so the cache never holds more
+ * than ENTRIES lists per team.
+ */
+final class LegalMoveCache {
+    static final int ENTRIES = 4;
+
+    // Indexed by team ordinal, then slot
+    private final long[][] keys = new long[2][ENTRIES];
+    private final int[][][] moves = new int[2][ENTRIES][];
+    private final int[] next = new int[2];
+    private long hits;
+    private long misses;
+
+    /**
+     * @return the team's legal moves in the position with the given key, or
+     * null if they aren't cached. The array is shared and must not be changed.
+     */
+    int[] get(long key, ChessGame.TeamColor team) {
+        int t = team.ordinal();
+        for (int slot = 0; slot < ENTRIES; slot++) {
+            if (moves[t][slot] != null && keys[t][slot] == key) {
+                hits++;
+                return moves[t][slot];
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Caches the first count moves, replacing the team's oldest entry
+     *
+     * @return the cached copy
+     */
+    int[] put(long key, ChessGame.TeamColor team, int[] legalMoves, int count) {
+        int t = team.ordinal();
+        int slot = next[t];
+        next[t] = (slot + 1) % ENTRIES;
+        keys[t][slot] = key;
+        moves[t][slot] = Arrays.copyOf(legalMoves, count);
+        return moves[t][slot];
+    }
+
+    void clear() {
+        for (int[][] teamMoves : moves) {
+            Arrays.fill(teamMoves, null);
+        }
+    }
+
+    long hits() {
+        return hits;
+    }
+
+    long misses() {
+        return misses;
+    }
+}
@@ -0,0 +1,291 @@
+package chess;
+
+/**
+ * Allocation-free move generation. Moves are written as packed ints (see
+ * PackedMove) into a buffer the caller owns, so hot paths can reuse one array
+ * instead of building a Collection of ChessMove objects per call.
+ * <p>
+ * generateMoves and generatePieceMoves are, like ChessPiece.pieceMoves, the moves
+ * a piece could make without considering whether they leave its own king in
+ * danger. generateLegalMoves keeps only the moves that don't.
+ */
+public final class MoveGenerator {
+    /**
+     * Enough room for every pseudo-legal move of one team in any reachable position
+     */
+    public static final int MAX_MOVES = 256;
+    /**
+     * Enough room for the moves of any single piece (a queen reaches at most 27 squares)
+     */
+    public static final int MAX_PIECE_MOVES = 32;
+
+    private static final ChessPiece.PieceType[] PROMOTIONS = {
+            ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.ROOK
+    };
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Writes the moves of every piece the team has on the board
+     *
+     * @param moves buffer to fill, at least MAX_MOVES long
+     * @return the number of moves written
+     */
+    public static int generateMoves(ChessBoard board, ChessGame.TeamColor team, int[] moves) {
+        return teamMoves(board, team, moves, 0);
+    }
+
+    /**
+     * Writes the moves of the piece at the given position
+     *
+     * @param moves buffer to fill, at least MAX_PIECE_MOVES long
+     * @return the number of moves written, 0 if the square is empty
+     */
+    public static int generatePieceMoves(ChessBoard board, ChessPosition position, int[] moves) {
+        return pieceMoves(board, Bitboards.square(position), moves, 0);
+    }
+
+    /**
+     * Writes the legal moves of the side to move: pseudo-legal moves that leave
+     * its king safe, found without trying any of them on the board
+     *
+     * @param moves buffer to fill, at least MAX_MOVES long
+     * @return the number of moves written
+     */
+    public static int generateLegalMoves(ChessGame game, int[] moves) {
+        return legalMoves(game, game.getTeamTurn(), ~0L, moves, 0);
+    }
+
+    /**
+     * Writes the legal captures of the side to move, en passant included, for
+     * searches that only want to play out exchanges
+     *
+     * @param moves buffer to fill, at least MAX_MOVES long
+     * @return the number of moves written
+     */
+    static int legalCaptures(ChessGame game, int[] moves) {
+        ChessGame.TeamColor team = game.getTeamTurn();
+        long enemies = game.getBoard().occupancy(ChessGame.opponent(team));
+        return legalMoves(game, team, ~0L, enemies, moves, 0, false);
+    }
+
+    static int teamMoves(ChessBoard board, ChessGame.TeamColor team, int[] moves, int count) {
+        long pieces = board.occupancy(team);
+        while (pieces != 0) {
+            count = pieceMoves(board, Long.numberOfTrailingZeros(pieces), moves, count);
+            pieces &= pieces - 1;
+        }
+        return count;
+    }
+
+    static int pieceMoves(ChessBoard board, int square, int[] moves, int count) {
+        int index = board.pieceAt(square);
+        if (index < 0) {
+            return count;
+        }
+        return addTargets(square, index, targets(board, square, index), moves, count);
+    }
+
+    /**
+     * Writes the legal moves of the team's pieces standing on the from squares,
+     * including castling and, when it's the team's turn, en passant.
+     * <p>
+     * Rather than making each move and looking for check, this works out up front
+     * which squares can answer a check (the checker and the squares between it and
+     * the king) and which pieces are pinned (they may only slide along the line
+     * through the king and the pinner), then masks every piece's targets with them.
+     * The king avoids every square the enemy attacks, with the king itself lifted
+     * off the board so it can't hide behind itself from a checking slider.
+     */
+    static int legalMoves(ChessGame game, ChessGame.TeamColor team, long from, int[] moves, int count) {
+        return legalMoves(game, team, from, ~0L, moves, count, false);
+    }
+
+    /**
+     * @return whether the team has any legal move, stopping at the first piece that has one
+     */
+    static boolean hasLegalMove(ChessGame game, ChessGame.TeamColor team) {
+        return legalMoves(game, team, ~0L, ~0L, new int[MAX_PIECE_MOVES], 0, true) > 0;
+    }
+
+    // Only moves landing on the to squares are written; castling only when that's every square.
+    // With stopAtFirst set this returns as soon as one piece has written a move,
+    // so moves only needs to hold a single piece's worth
+    private static int legalMoves(ChessGame game, ChessGame.TeamColor team, long from, long to, int[] moves, int count,
+                                  boolean stopAtFirst) {
+        ChessBoard board = game.getBoard();
+        long own = board.occupancy(team);
+        from &= own;
+        ChessGame.TeamColor enemy = ChessGame.opponent(team);
+        int king = board.kingSquare(team);
+        // Without a king nothing can be left in check, so nothing is pinned either
+        long kingBit = king < 0 ? 0L : Bitboards.bit(king);
+        long checkers = king < 0 ? 0L : board.attackersTo(king, enemy);
+        if ((from & kingBit) != 0) {
+            // With no checker on the board no slider ray reaches the king, so the cached map is exact
+            long danger = checkers == 0 ? board.attackMap(enemy) : board.attacksThrough(enemy, board.occupied() ^ kingBit);
+            count = addMoves(king, Bitboards.KING_ATTACKS[king] & ~own & ~danger & to, moves, count);
+            if (checkers == 0 && to == ~0L) {
+                count = castlingMoves(board, team, king, game.castlingRights(), danger, moves, count);
+            }
+        }
+        if ((checkers & (checkers - 1)) != 0 || (stopAtFirst && count > 0)) {
+            // Double check: only the king can move
+            return count;
+        }
+
+        long checkMask = (checkers == 0 ? ~0L : checkers | Bitboards.BETWEEN[king][Long.numberOfTrailingZeros(checkers)]) & to;
+        long pinned = king < 0 ? 0L : pinnedPieces(board, team, king);
+        long pieces = from & ~kingBit;
+        while (pieces != 0 && !(stopAtFirst && count > 0)) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            long allowed = (pinned & Bitboards.bit(square)) == 0 ? checkMask : checkMask & Bitboards.LINE[king][square];
+            int index = board.pieceAt(square);
+            count = addTargets(square, index, targets(board, square, index) & allowed, moves, count);
+            pieces &= pieces - 1;
+        }
+
+        int enPassant = team == game.getTeamTurn() ? game.enPassantSquare() : -1;
+        if (enPassant >= 0 && !(stopAtFirst && count > 0)) {
+            // Our pawns standing where an enemy pawn on the en passant square could capture
+            long capturers = Bitboards.PAWN_ATTACKS[enemy.ordinal()][enPassant] & board.pieces(team, ChessPiece.PieceType.PAWN) & from;
+            while (capturers != 0) {
+                int square = Long.numberOfTrailingZeros(capturers);
+                if (king < 0 || enPassantIsSafe(board, team, king, square, enPassant)) {
+                    moves[count++] = PackedMove.of(square, enPassant);
+                }
+                capturers &= capturers - 1;
+            }
+        }
+        return count;
+    }
+
+    // Castling rights are dropped as soon as the king or a rook leaves home, but
+    // positions loaded by hand can claim rights they don't have, so the pieces are
+    // checked too. The king may not pass through or land on an attacked square.
+    private static int castlingMoves(ChessBoard board, ChessGame.TeamColor team, int king, int rights, long danger,
+                                     int[] moves, int count) {
+        boolean white = team == ChessGame.TeamColor.WHITE;
+        int home = white ? Bitboards.square(1, 5) : Bitboards.square(8, 5);
+        if (king != home || rights == 0) {
+            return count;
+        }
+        long occupied = board.occupied();
+        long rooks = board.pieces(team, ChessPiece.PieceType.ROOK);
+        int kingside = white ? ChessGame.CASTLE_WHITE_KINGSIDE : ChessGame.CASTLE_BLACK_KINGSIDE;
+        int queenside = white ? ChessGame.CASTLE_WHITE_QUEENSIDE : ChessGame.CASTLE_BLACK_QUEENSIDE;
+        long kingsidePath = Bitboards.BETWEEN[home][home + 3];
+        if ((rights & kingside) != 0 && (rooks & Bitboards.bit(home + 3)) != 0
+                && (kingsidePath & (occupied | danger)) == 0) {
+            moves[count++] = PackedMove.of(home, home + 2);
+        }
+        // The rook crosses the b-file square too, but the king never touches it, so it only needs to be empty
+        long kingPath = Bitboards.bit(home - 1) | Bitboards.bit(home - 2);
+        if ((rights & queenside) != 0 && (rooks & Bitboards.bit(home - 4)) != 0
+                && (Bitboards.BETWEEN[home][home - 4] & occupied) == 0 && (kingPath & danger) == 0) {
+            moves[count++] = PackedMove.of(home, home - 2);
+        }
+        return count;
+    }
+
+    // En passant takes two pawns off one rank at once, which pin detection can't see,
+    // so check the king against the board as it will be after the capture
+    private static boolean enPassantIsSafe(ChessBoard board, ChessGame.TeamColor team, int king, int from, int to) {
+        ChessGame.TeamColor enemy = ChessGame.opponent(team);
+        long captured = Bitboards.bit(PackedMove.enPassantVictim(from, to));
+        long occupied = (board.occupied() ^ Bitboards.bit(from) ^ captured) | Bitboards.bit(to);
+        long queens = board.pieces(enemy, ChessPiece.PieceType.QUEEN);
+        long attackers = (Bitboards.rookAttacks(king, occupied) & (board.pieces(enemy, ChessPiece.PieceType.ROOK) | queens))
+                | (Bitboards.bishopAttacks(king, occupied) & (board.pieces(enemy, ChessPiece.PieceType.BISHOP) | queens))
+                | (Bitboards.KNIGHT_ATTACKS[king] & board.pieces(enemy, ChessPiece.PieceType.KNIGHT))
+                | (Bitboards.PAWN_ATTACKS[team.ordinal()][king] & board.pieces(enemy, ChessPiece.PieceType.PAWN) & ~captured);
+        return attackers == 0;
+    }
+
+    // Own pieces that are the only thing standing between their king and an enemy slider
+    static long pinnedPieces(ChessBoard board, ChessGame.TeamColor team, int king) {
+        ChessGame.TeamColor enemy = ChessGame.opponent(team);
+        long enemies = board.occupancy(enemy);
+        long queens = board.pieces(enemy, ChessPiece.PieceType.QUEEN);
+        // Sliders that would see the king if none of the team's own pieces were in the way
+        long pinners = (Bitboards.rookAttacks(king, enemies) & (board.pieces(enemy, ChessPiece.PieceType.ROOK) | queens))
+                | (Bitboards.bishopAttacks(king, enemies) & (board.pieces(enemy, ChessPiece.PieceType.BISHOP) | queens));
+        long occupied = board.occupied();
+        long pinned = 0L;
+        while (pinners != 0) {
+            long blockers = Bitboards.BETWEEN[king][Long.numberOfTrailingZeros(pinners)] & occupied;
+            if (blockers != 0 && (blockers & (blockers - 1)) == 0) {
+                pinned |= blockers;
+            }
+            pinners &= pinners - 1;
+        }
+        return pinned & board.occupancy(team);
+    }
+
+    // Squares the piece with the given index can reach from the square, ignoring its own king's safety
+    static long targets(ChessBoard board, int square, int index) {
+        ChessGame.TeamColor team = ChessPiece.ofIndex(index).getTeamColor();
+        long own = board.occupancy(team);
+        return switch (ChessPiece.ofIndex(index).getPieceType()) {
+            case KING -> Bitboards.KING_ATTACKS[square] & ~own;
+            case QUEEN -> Bitboards.queenAttacks(square, board.occupied()) & ~own;
+            case BISHOP -> Bitboards.bishopAttacks(square, board.occupied()) & ~own;
+            case KNIGHT -> Bitboards.KNIGHT_ATTACKS[square] & ~own;
+            case ROOK -> Bitboards.rookAttacks(square, board.occupied()) & ~own;
+            case PAWN -> pawnTargets(board, square, team);
+        };
+    }
+
+    private static int addTargets(int from, int index, long targets, int[] moves, int count) {
+        return ChessPiece.ofIndex(index).getPieceType() == ChessPiece.PieceType.PAWN
+                ? addPawnMoves(from, targets, moves, count)
+                : addMoves(from, targets, moves, count);
+    }
+
+    static int addMoves(int from, long targets, int[] moves, int count) {
+        while (targets != 0) {
+            moves[count++] = PackedMove.of(from, Long.numberOfTrailingZeros(targets));
+            targets &= targets - 1;
+        }
+        return count;
+    }
+
+    // Like addMoves, but a pawn reaching the last rank must promote, so it gets one move per piece choice
+    static int addPawnMoves(int from, long targets, int[] moves, int count) {
+        long promotionRows = Bitboards.RANK_1 | Bitboards.RANK_8;
+        count = addMoves(from, targets & ~promotionRows, moves, count);
+        long promotions = targets & promotionRows;
+        while (promotions != 0) {
+            int to = Long.numberOfTrailingZeros(promotions);
+            for (ChessPiece.PieceType type : PROMOTIONS) {
+                moves[count++] = PackedMove.of(from, to, type);
+            }
+            promotions &= promotions - 1;
+        }
+        return count;
+    }
+
+    static int pawnMoves(ChessBoard board, int square, ChessGame.TeamColor team, int[] moves, int count) {
+        return addPawnMoves(square, pawnTargets(board, square, team), moves, count);
+    }
+
+    static long pawnTargets(ChessBoard board, int square, ChessGame.TeamColor team) {
+        boolean white = team == ChessGame.TeamColor.WHITE;
+        long empty = ~board.occupied();
+        long pawn = Bitboards.bit(square);
+        long startingRow = white ? Bitboards.RANK_1 << 8 : Bitboards.RANK_8 >>> 8;
+        ChessGame.TeamColor opponent = white ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+
+        // Normal forward move
+        long targets = (white ? pawn << 8 : pawn >>> 8) & empty;
+
+        // Pawn's initial double move, only through an empty square
+        if ((pawn & startingRow) != 0 && targets != 0) {
+            targets |= (white ? pawn << 16 : pawn >>> 16) & empty;
+        }
+
+        // Diagonal captures
+        return targets | (Bitboards.PAWN_ATTACKS[team.ordinal()][square] & board.occupancy(opponent));
+    }
+}
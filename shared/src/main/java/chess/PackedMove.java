@@ -0,0 +1,100 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Encodes a chess move in a single int so move lists can live in plain int arrays.
+ * <p>
+ * Bits 0-5 hold the start square, bits 6-11 the end square (a1 = 0 ... h8 = 63)
+ * and bits 12-14 the promotion piece as its PieceType ordinal plus one, with 0
+ * meaning no promotion. Everything fits in 16 bits.
+ * <p>
+ * Castling and en passant need no flags of their own: castling is the only
+ * move that takes a king two files, and en passant the only pawn capture that
+ * lands on an empty square, so ChessGame tells them apart from the board.
+ */
+public final class PackedMove {
+    private static final ChessPiece.PieceType[] PIECE_TYPES = ChessPiece.PieceType.values();
+
+    private PackedMove() {
+    }
+
+    static int of(int from, int to) {
+        return from | (to << 6);
+    }
+
+    static int of(int from, int to, ChessPiece.PieceType promotion) {
+        return from | (to << 6) | (promotion == null ? 0 : (promotion.ordinal() + 1) << 12);
+    }
+
+    static int from(int move) {
+        return move & 0x3F;
+    }
+
+    static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    /**
+     * @return the promotion piece type, or null if the move is not a promotion
+     */
+    public static ChessPiece.PieceType promotion(int move) {
+        int code = (move >>> 12) & 0x7;
+        return code == 0 ? null : PIECE_TYPES[code - 1];
+    }
+
+    public static ChessPosition startPosition(int move) {
+        return ChessPosition.ofSquare(from(move));
+    }
+
+    public static ChessPosition endPosition(int move) {
+        return ChessPosition.ofSquare(to(move));
+    }
+
+    /**
+     * Packs a ChessMove so it can be compared against generated moves
+     */
+    public static int fromChessMove(ChessMove move) {
+        return of(Bitboards.square(move.getStartPosition()), Bitboards.square(move.getEndPosition()), move.promotionPiece());
+    }
+
+    public static ChessMove toChessMove(int move) {
+        return new ChessMove(startPosition(move), endPosition(move), promotion(move));
+    }
+
+    /**
+     * @return the move in coordinate notation, e.g. "e2e4" or "e7e8q"
+     */
+    public static String toString(int move) {
+        ChessPiece.PieceType promotion = promotion(move);
+        String text = squareName(from(move)) + squareName(to(move));
+        return promotion == null ? text : text + switch (promotion) {
+            case QUEEN -> "q";
+            case ROOK -> "r";
+            case BISHOP -> "b";
+            case KNIGHT -> "n";
+            default -> "";
+        };
+    }
+
+    // The pawn taken en passant stands on the capturing pawn's rank, in the file it moves to
+    static int enPassantVictim(int from, int to) {
+        return (from & ~7) | (to & 7);
+    }
+
+    static String squareName(int square) {
+        return "" + (char) ('a' + (square & 7)) + (char) ('1' + (square >>> 3));
+    }
+
+    /**
+     * Converts the first count packed moves of a buffer for callers of the Collection API
+     */
+    public static Collection<ChessMove> toChessMoves(int[] moves, int count) {
+        Collection<ChessMove> converted = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            converted.add(toChessMove(moves[i]));
+        }
+        return converted;
+    }
+}
@@ -0,0 +1,154 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs one Search across several cores with Lazy SMP: helper threads run the
+ * same iterative deepening search on the same position, sharing one
+ * transposition table. They don't split the work between them. Each helper
+ * fills the table with results the others then cut off on, so the main
+ * thread reaches a given depth sooner.
+ * <p>
+ * Helpers come from a fixed pool shared by every request, and a request only
+ * takes helpers that are idle at the moment it starts, up to its own thread
+ * budget. An analysis request can use spare cores this way, but it never
+ * queues behind another request or takes threads from game traffic. With a
+ * budget of one thread, or no idle helper, the search runs on the calling
+ * thread alone, just as Search would, so the same position and table
+ * contents always give the same move.
+ */
+public final class ParallelSearch implements AutoCloseable {
+    private final TranspositionTable table;
+    private final ExecutorService helpers;
+    private final Semaphore idleHelpers;
+    // Searches not in use, kept for their buffers
+    private final Queue<Search> spareSearches = new ConcurrentLinkedQueue<>();
+
+    /**
+     * A parallel search with a helper for every core but one
+     */
+    public ParallelSearch(TranspositionTable table) {
+        this(table, Runtime.getRuntime().availableProcessors() - 1);
+    }
+
+    /**
+     * @param helperThreads the most helper threads all requests together may use
+     */
+    public ParallelSearch(TranspositionTable table, int helperThreads) {
+        this.table = table;
+        this.idleHelpers = new Semaphore(Math.max(helperThreads, 0));
+        this.helpers = Executors.newFixedThreadPool(Math.max(helperThreads, 1), runnable -> {
+            Thread thread = new Thread(runnable, "search-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Searches the game's position on the calling thread plus up to threads - 1
+     * idle helpers. The limits apply to the calling thread, and helpers stop
+     * when it does. The move comes from whichever thread finished the deepest
+     * iteration, the calling thread on a tie, and the node count covers every
+     * thread. Every thread searches its own copy of the game, all made here
+     * on the calling thread before any helper starts, so the game is only read
+     * by the thread that owns it and is free to change once this returns.
+     */
+    public Search.Result search(ChessGame game, Search.Limits limits, int threads) {
+        table.newSearch();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        int helperCount = 0;
+        while (helperCount < threads - 1 && idleHelpers.tryAcquire()) {
+            helperCount++;
+        }
+        // Helpers have no limits of their own besides depth
+        Search.Limits helperLimits = Search.Limits.ofDepth(limits.depth());
+        List<Future<Search.Result>> helperResults = new ArrayList<>(helperCount);
+        for (int i = 1; i <= helperCount; i++) {
+            int helper = i;
+            // Copying may rebuild the board's cached key, so it must not happen on several threads at once
+            ChessGame helperGame = game.copy();
+            try {
+                helperResults.add(helpers.submit(() -> {
+                    try {
+                        return searchWithSpare(helperGame, helperLimits, helper, cancelled);
+                    } finally {
+                        idleHelpers.release();
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                // Closed: hand back the helpers that won't run
+                idleHelpers.release(helperCount - i + 1);
+                break;
+            }
+        }
+
+        Search.Result result;
+        try {
+            result = searchWithSpare(game.copy(), limits, 0, cancelled);
+        } finally {
+            cancelled.set(true);
+        }
+        long nodes = result.nodes();
+        for (Future<Search.Result> future : helperResults) {
+            Search.Result helperResult = awaitHelper(future);
+            if (helperResult != null) {
+                nodes += helperResult.nodes();
+                if (helperResult.depth() > result.depth() && helperResult.move() != 0) {
+                    result = helperResult;
+                }
+            }
+        }
+        return new Search.Result(result.move(), result.score(), result.depth(), result.pv(), nodes, result.nanos());
+    }
+
+    private Search.Result searchWithSpare(ChessGame ownCopy, Search.Limits limits, int helper, AtomicBoolean cancelled) {
+        Search search = spareSearches.poll();
+        if (search == null) {
+            search = new Search(table);
+        }
+        try {
+            return search.search(ownCopy, limits, helper, cancelled);
+        } finally {
+            spareSearches.offer(search);
+        }
+    }
+
+    /**
+     * @return the helper's result, or null if the caller was interrupted while waiting
+     */
+    private static Search.Result awaitHelper(Future<Search.Result> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search helper failed", e.getCause());
+        }
+    }
+
+    /**
+     * @return how many helpers are free for the next request
+     */
+    int idleHelpers() {
+        return idleHelpers.availablePermits();
+    }
+
+    /**
+     * Shuts the helper pool down; searches after this run on the calling thread alone
+     */
+    @Override
+    public void close() {
+        helpers.shutdownNow();
+    }
+}
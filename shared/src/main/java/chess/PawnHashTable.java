@@ -0,0 +1,85 @@
+package chess;
+
+/**
+ * Caches pawn structure scores by the board's pawn-only Zobrist key.
+ * <p>
+ * Pawns move far less often than pieces, so the same pawn structure comes
+ * up again and again across a search tree, and the doubled, isolated and
+ * passed pawn terms only need working out when a pawn has actually moved
+ * or been taken. Each entry is the full key plus the packed score (see
+ * Evaluation.score), in slots picked by the key's low bits; a new structure
+ * simply replaces whatever was in its slot.
+ * <p>
+ * Not thread safe: each Search has its own.
+ */
+public final class PawnHashTable {
+    // A 64-bit key and a 32-bit score
+    private static final int ENTRY_BYTES = 12;
+
+    private final long[] keys;
+    private final int[] scores;
+    private final int mask;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param kilobytes the most memory the table may use, rounded down to a
+     *                  power of two number of entries
+     */
+    public PawnHashTable(int kilobytes) {
+        if (kilobytes < 1) {
+            throw new IllegalArgumentException("Pawn hash table size must be at least 1 KB");
+        }
+        int entries = Integer.highestOneBit((int) Math.min((long) kilobytes * 1024 / ENTRY_BYTES, 1 << 30));
+        keys = new long[entries];
+        scores = new int[entries];
+        mask = entries - 1;
+        // Every empty slot reads as key 0 with a score of 0, which is right for the one
+        // structure with key 0: no pawns at all
+    }
+
+    /**
+     * @return the packed pawn structure score for the given pawns, white minus
+     * black, from the table if it's there
+     */
+    int pawnStructure(long pawnKey, long whitePawns, long blackPawns) {
+        int slot = (int) pawnKey & mask;
+        if (keys[slot] == pawnKey) {
+            hits++;
+            return scores[slot];
+        }
+        misses++;
+        int score = Evaluation.pawnStructure(whitePawns, blackPawns);
+        keys[slot] = pawnKey;
+        scores[slot] = score;
+        return score;
+    }
+
+    /**
+     * @return the number of entries the table can hold
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    public long hits() {
+        return hits;
+    }
+
+    public long misses() {
+        return misses;
+    }
+
+    /**
+     * @return the share of lookups answered from the table, 0 if there have been none
+     */
+    public double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    public void resetStatistics() {
+        hits = 0;
+        misses = 0;
+    }
+}
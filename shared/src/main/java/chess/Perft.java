@@ -0,0 +1,129 @@
+package chess;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Perft: counts the leaf nodes of the legal move tree to a fixed depth. The
+ * counts for well-known positions are published, so any difference points at
+ * a move generation bug, and nodes per second is a direct measure of how fast
+ * generation plus make/unmake runs.
+ * <p>
+ * Run it with {@code mvn -pl shared exec:java -Dexec.mainClass=chess.Perft -Dexec.args="5"}
+ * to time the reference positions to depth 5, or pass a depth and a FEN string
+ * to print a divide (the node count under each root move) for that position.
+ */
+public final class Perft {
+
+    /**
+     * A test position with its published node counts; nodes[0] is depth 1
+     */
+    public record Position(String name, String fen, long... nodes) {
+    }
+
+    // Node counts from the Chess Programming Wiki perft results page
+    public static final List<Position> REFERENCE_POSITIONS = List.of(
+            new Position("start", Fen.START_POSITION,
+                    20L, 400L, 8_902L, 197_281L, 4_865_609L, 119_060_324L),
+            new Position("kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                    48L, 2_039L, 97_862L, 4_085_603L, 193_690_690L),
+            new Position("position 3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                    14L, 191L, 2_812L, 43_238L, 674_624L, 11_030_083L),
+            new Position("position 4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                    6L, 264L, 9_467L, 422_333L, 15_833_292L),
+            new Position("position 5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                    44L, 1_486L, 62_379L, 2_103_487L, 89_941_194L),
+            new Position("position 6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                    46L, 2_079L, 89_890L, 3_894_594L, 164_075_551L)
+    );
+
+    private Perft() {
+    }
+
+    /**
+     * @return the number of legal move sequences of exactly depth plies from the game's position
+     */
+    public static long perft(ChessGame game, int depth) {
+        if (depth <= 0) {
+            return 1;
+        }
+        return perft(game, depth, new int[depth][MoveGenerator.MAX_MOVES]);
+    }
+
+    /**
+     * Counts nodes under each legal root move, printing one "move: nodes" line per move
+     *
+     * @return the total, the same number perft would return
+     */
+    public static long divide(ChessGame game, int depth, PrintStream out) {
+        depth = Math.max(depth, 1);
+        int[][] buffers = new int[depth][MoveGenerator.MAX_MOVES];
+        int[] moves = buffers[depth - 1];
+        int count = MoveGenerator.generateLegalMoves(game, moves);
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            game.doMove(moves[i]);
+            long nodes = depth == 1 ? 1 : perft(game, depth - 1, buffers);
+            game.undoMove();
+            out.println(PackedMove.toString(moves[i]) + ": " + nodes);
+            total += nodes;
+        }
+        out.println();
+        out.println("Nodes searched: " + total);
+        return total;
+    }
+
+    // buffers[depth - 1] holds this ply's moves, so the whole walk reuses the same arrays.
+    // Every generated move is legal, so the last ply is just counted, not played
+    private static long perft(ChessGame game, int depth, int[][] buffers) {
+        int[] moves = buffers[depth - 1];
+        int count = MoveGenerator.generateLegalMoves(game, moves);
+        if (depth == 1) {
+            return count;
+        }
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            game.doMove(moves[i]);
+            nodes += perft(game, depth - 1, buffers);
+            game.undoMove();
+        }
+        return nodes;
+    }
+
+    /**
+     * With no arguments, or only a depth (default 4), runs every reference
+     * position to that depth and reports speed. With a depth and a FEN string,
+     * prints a divide of that position.
+     */
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        if (args.length > 1) {
+            String fen = String.join(" ", List.of(args).subList(1, args.length));
+            divide(Fen.parse(fen), depth, System.out);
+            return;
+        }
+
+        long totalNodes = 0;
+        long totalNanos = 0;
+        boolean allMatch = true;
+        for (Position position : REFERENCE_POSITIONS) {
+            int positionDepth = Math.min(depth, position.nodes().length);
+            ChessGame game = Fen.parse(position.fen());
+            long start = System.nanoTime();
+            long nodes = perft(game, positionDepth);
+            long nanos = System.nanoTime() - start;
+            long expected = position.nodes()[positionDepth - 1];
+
+            System.out.printf("%-12s depth %d: %,d nodes (expected %,d)%s in %.3f s, %,.0f nodes/s%n",
+                    position.name(), positionDepth, nodes, expected, nodes == expected ? "" : " MISMATCH",
+                    nanos / 1e9, nodes / (nanos / 1e9));
+            totalNodes += nodes;
+            totalNanos += nanos;
+            allMatch &= nodes == expected;
+        }
+        System.out.printf("Total: %,d nodes in %.3f s, %,.0f nodes/s%n", totalNodes, totalNanos / 1e9, totalNodes / (totalNanos / 1e9));
+        if (!allMatch) {
+            System.exit(1);
+        }
+    }
+}
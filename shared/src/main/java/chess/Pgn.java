@@ -0,0 +1,193 @@
+package chess;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Portable Game Notation: a game's tags plus its moves in SAN.
+ * <p>
+ * Export replays the game's move history from its start position, so any game
+ * whose moves were played with makeMove can be written out. Import plays the
+ * movetext back onto a new game, skipping comments, variations and NAGs.
+ */
+public final class Pgn {
+    private static final String[] SEVEN_TAG_ROSTER = {"Event", "Site", "Date", "Round", "White", "Black", "Result"};
+    private static final int LINE_WIDTH = 80;
+
+    private Pgn() {
+    }
+
+    /**
+     * @return the game as PGN text, see write
+     */
+    public static String export(ChessGame game, Map<String, String> tags) {
+        StringBuilder pgn = new StringBuilder(512);
+        try {
+            write(game, tags, pgn);
+        } catch (IOException e) {
+            // StringBuilder never throws
+            throw new UncheckedIOException(e);
+        }
+        return pgn.toString();
+    }
+
+    /**
+     * Writes one game: the seven standard tags (filled with "?" when missing)
+     * then any others given, SetUp and FEN tags when the game didn't start from
+     * the standard position, and the movetext wrapped to 80 columns. The result
+     * comes from the final position when the game is over, else from the
+     * Result tag, else "*".
+     */
+    public static void write(ChessGame game, Map<String, String> tags, Appendable out) throws IOException {
+        String startFen = game.getStartFen();
+        ChessGame replay = Fen.parse(startFen);
+        ChessGame.TeamColor mover = replay.getTeamTurn();
+        int moveNumber = replay.fullmoveNumber();
+        int[] moves = game.getMoveHistory();
+        String[] sans = new String[moves.length];
+        for (int i = 0; i < moves.length; i++) {
+            sans[i] = San.format(replay, moves[i]);
+            replay.doMove(moves[i]);
+        }
+        String result = result(replay, tags.get("Result"));
+
+        Map<String, String> allTags = new LinkedHashMap<>();
+        for (String name : SEVEN_TAG_ROSTER) {
+            allTags.put(name, tags.getOrDefault(name, "?"));
+        }
+        allTags.putAll(tags);
+        allTags.put("Result", result);
+        if (!startFen.equals(Fen.START_POSITION)) {
+            allTags.put("SetUp", "1");
+            allTags.put("FEN", startFen);
+        }
+        for (Map.Entry<String, String> tag : allTags.entrySet()) {
+            out.append('[').append(tag.getKey()).append(" \"")
+                    .append(tag.getValue().replace("\\", "\\\\").replace("\"", "\\\"")).append("\"]\n");
+        }
+        out.append('\n');
+
+        int column = 0;
+        for (int i = 0; i < sans.length; i++) {
+            String token = sans[i];
+            if (mover == ChessGame.TeamColor.WHITE) {
+                token = moveNumber + ". " + token;
+            } else if (i == 0) {
+                token = moveNumber + "... " + token;
+            }
+            column = appendToken(out, token, column);
+            if (mover == ChessGame.TeamColor.BLACK) {
+                moveNumber++;
+            }
+            mover = ChessGame.opponent(mover);
+        }
+        appendToken(out, result, column);
+        out.append("\n\n");
+    }
+
+    // Game-ending positions decide the result themselves; otherwise trust the tag
+    private static String result(ChessGame game, String tagged) {
+        return switch (game.getGameStatus(game.getTeamTurn())) {
+            case CHECKMATE -> game.getTeamTurn() == ChessGame.TeamColor.WHITE ? "0-1" : "1-0";
+            case STALEMATE -> "1/2-1/2";
+            default -> tagged != null && !tagged.equals("?") ? tagged : "*";
+        };
+    }
+
+    private static int appendToken(Appendable out, String token, int column) throws IOException {
+        if (column > 0 && column + 1 + token.length() > LINE_WIDTH) {
+            out.append('\n');
+            column = 0;
+        } else if (column > 0) {
+            out.append(' ');
+            column++;
+        }
+        out.append(token);
+        return column + token.length();
+    }
+
+    /**
+     * Plays a game's movetext from the position its tags give (the FEN tag, or
+     * the standard start), recording every move in the game's history
+     *
+     * @throws IllegalArgumentException if a move is malformed or illegal
+     */
+    public static ChessGame play(Map<String, String> tags, CharSequence movetext) {
+        String fen = tags.get("FEN");
+        ChessGame game = fen != null ? Fen.parse(fen) : new ChessGame();
+        int[] buffer = new int[MoveGenerator.MAX_MOVES];
+        int length = movetext.length();
+        int depth = 0;
+        int i = 0;
+        while (i < length) {
+            char c = movetext.charAt(i);
+            if (c == '{') {
+                // Comments don't nest
+                while (i < length && movetext.charAt(i) != '}') {
+                    i++;
+                }
+                i++;
+            } else if (c == ';' || (c == '%' && (i == 0 || movetext.charAt(i - 1) == '\n'))) {
+                while (i < length && movetext.charAt(i) != '\n') {
+                    i++;
+                }
+            } else if (c == '(') {
+                depth++;
+                i++;
+            } else if (c == ')') {
+                depth--;
+                i++;
+            } else if (Character.isWhitespace(c)) {
+                i++;
+            } else {
+                int start = i;
+                while (i < length && !Character.isWhitespace(movetext.charAt(i))
+                        && "{}();".indexOf(movetext.charAt(i)) < 0) {
+                    i++;
+                }
+                if (depth == 0) {
+                    playToken(game, movetext.subSequence(start, i).toString(), buffer);
+                }
+            }
+        }
+        return game;
+    }
+
+    /**
+     * @return a game played from a whole PGN text holding one game
+     */
+    public static ChessGame parse(String pgn) {
+        try (PgnReader reader = new PgnReader(new StringReader(pgn))) {
+            PgnReader.Game game = reader.next();
+            if (game == null) {
+                throw new IllegalArgumentException("No game in PGN text");
+            }
+            return game.play();
+        } catch (IOException e) {
+            // StringReader never throws
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void playToken(ChessGame game, String token, int[] buffer) {
+        // Move numbers like "12." or "12...", possibly glued to the move as in "12.e4"
+        int start = 0;
+        while (start < token.length() && Character.isDigit(token.charAt(start))) {
+            start++;
+        }
+        if (start > 0 && start < token.length() && token.charAt(start) == '.') {
+            while (start < token.length() && token.charAt(start) == '.') {
+                start++;
+            }
+            token = token.substring(start);
+        }
+        if (token.isEmpty() || token.charAt(0) == '$' || token.equals("*")
+                || token.equals("1-0") || token.equals("0-1") || token.equals("1/2-1/2")) {
+            return;
+        }
+        game.playMove(San.parse(game, token, buffer));
+    }
+}
@@ -0,0 +1,138 @@
+package chess;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Bulk PGN import: one thread splits the stream into games while a pool of
+ * workers replays them and hands the results on in batches.
+ * <p>
+ * Splitting is cheap and replaying (SAN parsing plus legal move generation for
+ * every move) is not, so the work parallelizes well. The queue between the two
+ * holds at most two batches per worker, so memory stays bounded by the batch
+ * size and thread count no matter how large the input is.
+ */
+public final class PgnImporter {
+
+    /**
+     * A replayed game with the tags it was read with
+     */
+    public record ImportedGame(Map<String, String> tags, ChessGame game) {
+    }
+
+    /**
+     * How an import went: games handed to the sink, games skipped because their
+     * moves didn't parse, weren't legal or couldn't be replayed, and the wall
+     * time taken
+     */
+    public record Result(long imported, long rejected, long nanos) {
+        public double gamesPerSecond() {
+            return imported / (nanos / 1e9);
+        }
+    }
+
+    private static final List<PgnReader.Game> END = List.of();
+
+    private PgnImporter() {
+    }
+
+    /**
+     * Reads every game from the source and replays it on one of the given
+     * number of worker threads. The sink is called from the workers with
+     * batches of up to batchSize games, so it must be safe to call concurrently.
+     * If the sink throws, reading stops and the exception is rethrown here.
+     *
+     * @throws IllegalArgumentException if threads or batchSize is below 1
+     */
+    public static Result importGames(Reader source, int threads, int batchSize, Consumer<List<ImportedGame>> sink)
+            throws IOException, InterruptedException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("PGN import needs at least one thread, not " + threads);
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batches need at least one game, not " + batchSize);
+        }
+        long start = System.nanoTime();
+        BlockingQueue<List<PgnReader.Game>> queue = new ArrayBlockingQueue<>(threads * 2);
+        AtomicLong imported = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "pgn-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < threads; i++) {
+            workers.execute(() -> replayBatches(queue, sink, imported, rejected, failure));
+        }
+
+        try (PgnReader reader = new PgnReader(source)) {
+            List<PgnReader.Game> batch = new ArrayList<>(batchSize);
+            for (PgnReader.Game game = reader.next(); game != null && failure.get() == null; game = reader.next()) {
+                batch.add(game);
+                if (batch.size() == batchSize) {
+                    queue.put(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                queue.put(batch);
+            }
+        } finally {
+            // Workers keep draining even after a failure, so these always find room
+            for (int i = 0; i < threads; i++) {
+                queue.put(END);
+            }
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return new Result(imported.get(), rejected.get(), System.nanoTime() - start);
+    }
+
+    private static void replayBatches(BlockingQueue<List<PgnReader.Game>> queue, Consumer<List<ImportedGame>> sink,
+                                      AtomicLong imported, AtomicLong rejected, AtomicReference<RuntimeException> failure) {
+        try {
+            for (List<PgnReader.Game> batch = queue.take(); batch != END; batch = queue.take()) {
+                if (failure.get() != null) {
+                    continue;
+                }
+                List<ImportedGame> replayed = new ArrayList<>(batch.size());
+                for (PgnReader.Game game : batch) {
+                    try {
+                        replayed.add(new ImportedGame(game.tags(), game.play()));
+                    } catch (RuntimeException e) {
+                        // Not only bad moves: anything one game throws must not stop this worker
+                        // draining the queue, or the reader could block on it for good
+                        rejected.incrementAndGet();
+                    }
+                }
+                try {
+                    if (!replayed.isEmpty()) {
+                        sink.accept(replayed);
+                    }
+                    imported.addAndGet(replayed.size());
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package chess;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Splits a PGN stream into games one at a time, so a file of any size can be
+ * read while holding only the current game's text in memory. Games come back
+ * unplayed; call Game.play to turn one into a ChessGame, on any thread.
+ */
+public final class PgnReader implements Closeable {
+
+    /**
+     * One game's tag pairs, in file order, and its raw movetext
+     */
+    public record Game(Map<String, String> tags, String movetext) {
+        /**
+         * @throws IllegalArgumentException if a move is malformed or illegal
+         */
+        public ChessGame play() {
+            return Pgn.play(tags, movetext);
+        }
+    }
+
+    private final BufferedReader in;
+    // A tag line already read that belongs to the next game
+    private String pending;
+
+    public PgnReader(Reader in) {
+        this.in = in instanceof BufferedReader buffered ? buffered : new BufferedReader(in, 1 << 16);
+    }
+
+    /**
+     * @return the next game, or null at the end of the stream
+     */
+    public Game next() throws IOException {
+        Map<String, String> tags = new LinkedHashMap<>();
+        StringBuilder movetext = new StringBuilder(512);
+        boolean inComment = false;
+        String line = pending != null ? pending : in.readLine();
+        pending = null;
+        for (; line != null; line = in.readLine()) {
+            String trimmed = line.strip();
+            if (!trimmed.isEmpty() && trimmed.charAt(0) == '\uFEFF') {
+                trimmed = trimmed.substring(1);
+            }
+            if (!inComment && trimmed.startsWith("[")) {
+                if (!movetext.isEmpty()) {
+                    // Movetext that never gave a result; the next game's tags end it
+                    pending = line;
+                    break;
+                }
+                parseTag(trimmed, tags);
+            } else if (!trimmed.isEmpty()) {
+                movetext.append(trimmed).append('\n');
+                inComment = updateCommentState(trimmed, inComment);
+                if (!inComment && endsWithResult(trimmed)) {
+                    break;
+                }
+            }
+        }
+        if (tags.isEmpty() && movetext.isEmpty()) {
+            return null;
+        }
+        return new Game(tags, movetext.toString());
+    }
+
+    // A brace comment can run over several lines, and a '[' inside one isn't a tag
+    private static boolean updateCommentState(String line, boolean inComment) {
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (!inComment && c == ';') {
+                return false;
+            }
+            if (c == '{') {
+                inComment = true;
+            } else if (c == '}') {
+                inComment = false;
+            }
+        }
+        return inComment;
+    }
+
+    private static boolean endsWithResult(String line) {
+        return line.endsWith("1-0") || line.endsWith("0-1") || line.endsWith("1/2-1/2") || line.endsWith("*");
+    }
+
+    // [Name "value"], where the value may contain \" and \\ escapes
+    private static void parseTag(String line, Map<String, String> tags) {
+        int space = line.indexOf(' ');
+        int open = line.indexOf('"');
+        int close = line.lastIndexOf('"');
+        if (space < 2 || open < 0 || close <= open) {
+            return;
+        }
+        StringBuilder value = new StringBuilder(close - open);
+        for (int i = open + 1; i < close; i++) {
+            char c = line.charAt(i);
+            if (c == '\\' && i + 1 < close) {
+                c = line.charAt(++i);
+            }
+            value.append(c);
+        }
+        tags.put(line.substring(1, space), value.toString());
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,192 @@
+package chess;
+
+/**
+ * Standard Algebraic Notation, the move format PGN uses: "e4", "Nbd7", "exd5",
+ * "O-O", "e8=Q+". Both directions need the position the move is played from.
+ */
+final class San {
+    private static final String PIECE_LETTERS = "KQBNRP";
+
+    private San() {
+    }
+
+    /**
+     * Writes a legal move of the side to move in SAN, with a + or # suffix when it gives check or mate
+     */
+    static String format(ChessGame game, int move) {
+        ChessBoard board = game.getBoard();
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int moving = board.pieceAt(from);
+        ChessPiece.PieceType type = ChessPiece.ofIndex(moving).getPieceType();
+        StringBuilder san = new StringBuilder(8);
+
+        if (type == ChessPiece.PieceType.KING && Math.abs(to - from) == 2) {
+            san.append(to > from ? "O-O" : "O-O-O");
+        } else {
+            boolean capture = board.pieceAt(to) >= 0
+                    || (type == ChessPiece.PieceType.PAWN && (from & 7) != (to & 7));
+            if (type == ChessPiece.PieceType.PAWN) {
+                if (capture) {
+                    san.append((char) ('a' + (from & 7)));
+                }
+            } else {
+                san.append(PIECE_LETTERS.charAt(type.ordinal()));
+                appendDisambiguation(san, game, moving, from, to);
+            }
+            if (capture) {
+                san.append('x');
+            }
+            san.append(PackedMove.squareName(to));
+            ChessPiece.PieceType promotion = PackedMove.promotion(move);
+            if (promotion != null) {
+                san.append('=').append(PIECE_LETTERS.charAt(promotion.ordinal()));
+            }
+        }
+
+        game.doMove(move);
+        ChessGame.GameStatus status = game.getGameStatus(game.getTeamTurn());
+        game.undoMove();
+        if (status == ChessGame.GameStatus.CHECKMATE) {
+            san.append('#');
+        } else if (status == ChessGame.GameStatus.CHECK) {
+            san.append('+');
+        }
+        return san.toString();
+    }
+
+    // When another piece of the same kind could also reach the square, name the file, then the rank, then both
+    private static void appendDisambiguation(StringBuilder san, ChessGame game, int moving, int from, int to) {
+        ChessBoard board = game.getBoard();
+        long rivals = board.pieces(ChessPiece.ofIndex(moving).getTeamColor(), ChessPiece.ofIndex(moving).getPieceType())
+                & ~Bitboards.bit(from);
+        if (rivals == 0) {
+            return;
+        }
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.legalMoves(game, game.getTeamTurn(), rivals, moves, 0);
+        boolean ambiguous = false;
+        boolean sameFile = false;
+        boolean sameRank = false;
+        for (int i = 0; i < count; i++) {
+            if (PackedMove.to(moves[i]) == to) {
+                int other = PackedMove.from(moves[i]);
+                ambiguous = true;
+                sameFile |= (other & 7) == (from & 7);
+                sameRank |= (other >>> 3) == (from >>> 3);
+            }
+        }
+        if (!ambiguous) {
+            return;
+        }
+        if (!sameFile) {
+            san.append((char) ('a' + (from & 7)));
+        } else if (!sameRank) {
+            san.append((char) ('1' + (from >>> 3)));
+        } else {
+            san.append(PackedMove.squareName(from));
+        }
+    }
+
+    /**
+     * Finds the legal move of the side to move that a SAN string names. Check
+     * and annotation suffixes are ignored, and so is a missing "=" before a
+     * promotion piece or a zero written for the O in castling.
+     *
+     * @return the packed move
+     * @throws IllegalArgumentException if the text isn't SAN or names no legal move, or more than one
+     */
+    static int parse(ChessGame game, String text) {
+        return parse(game, text, new int[MoveGenerator.MAX_MOVES]);
+    }
+
+    // Same, with a caller-owned buffer for the legal moves so replaying a game doesn't allocate per move
+    static int parse(ChessGame game, String text, int[] moves) {
+        int end = text.length();
+        while (end > 0 && "+#!?".indexOf(text.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        String san = text.substring(0, end).replace('0', 'O');
+        int count = MoveGenerator.generateLegalMoves(game, moves);
+        ChessBoard board = game.getBoard();
+
+        if (san.equals("O-O") || san.equals("O-O-O")) {
+            int king = board.kingSquare(game.getTeamTurn());
+            int to = san.equals("O-O") ? king + 2 : king - 2;
+            for (int i = 0; i < count; i++) {
+                if (PackedMove.from(moves[i]) == king && PackedMove.to(moves[i]) == to) {
+                    return moves[i];
+                }
+            }
+            throw new IllegalArgumentException("Castling is not legal here: " + text);
+        }
+
+        ChessPiece.PieceType promotion = null;
+        int equals = san.indexOf('=');
+        if (equals > 0 && equals == san.length() - 2) {
+            promotion = pieceType(san.charAt(equals + 1), text);
+            san = san.substring(0, equals);
+        } else if (san.length() > 2 && "QBNR".indexOf(san.charAt(san.length() - 1)) >= 0
+                && Character.isDigit(san.charAt(san.length() - 2))) {
+            promotion = pieceType(san.charAt(san.length() - 1), text);
+            san = san.substring(0, san.length() - 1);
+        }
+        if (san.length() < 2) {
+            throw new IllegalArgumentException("Not a SAN move: " + text);
+        }
+        int to = square(san.charAt(san.length() - 2), san.charAt(san.length() - 1), text);
+
+        ChessPiece.PieceType type = ChessPiece.PieceType.PAWN;
+        int start = 0;
+        if (Character.isUpperCase(san.charAt(0))) {
+            type = pieceType(san.charAt(0), text);
+            start = 1;
+        }
+        int fromFile = -1;
+        int fromRank = -1;
+        for (int i = start; i < san.length() - 2; i++) {
+            char c = san.charAt(i);
+            if (c >= 'a' && c <= 'h') {
+                fromFile = c - 'a';
+            } else if (c >= '1' && c <= '8') {
+                fromRank = c - '1';
+            } else if (c != 'x' && c != '-') {
+                throw new IllegalArgumentException("Not a SAN move: " + text);
+            }
+        }
+
+        int found = -1;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int from = PackedMove.from(move);
+            if (PackedMove.to(move) != to || PackedMove.promotion(move) != promotion
+                    || ChessPiece.ofIndex(board.pieceAt(from)).getPieceType() != type
+                    || (fromFile >= 0 && (from & 7) != fromFile) || (fromRank >= 0 && (from >>> 3) != fromRank)) {
+                continue;
+            }
+            if (found >= 0) {
+                throw new IllegalArgumentException("Ambiguous SAN move: " + text);
+            }
+            found = move;
+        }
+        if (found < 0) {
+            throw new IllegalArgumentException("Not a legal move: " + text);
+        }
+        return found;
+    }
+
+    private static ChessPiece.PieceType pieceType(char letter, String text) {
+        int index = PIECE_LETTERS.indexOf(letter);
+        if (index < 0) {
+            throw new IllegalArgumentException("Not a SAN move: " + text);
+        }
+        return ChessPiece.PieceType.values()[index];
+    }
+
+    private static int square(char file, char rank, String text) {
+        if (file < 'a' || file > 'h' || rank < '1' || rank > '8') {
+            throw new IllegalArgumentException("Not a SAN move: " + text);
+        }
+        return (rank - '1') * 8 + (file - 'a');
+    }
+}
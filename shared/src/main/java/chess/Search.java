@@ -0,0 +1,489 @@
+package chess;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Picks a move for the side to move: iterative deepening negamax with
+ * alpha-beta pruning, and a quiescence search at the leaves that plays out
+ * captures so a position is never judged halfway through an exchange.
+ * <p>
+ * Alpha-beta only cuts well when good moves come first, so each node tries
+ * the previous iteration's principal variation move, then captures by most
+ * valuable victim and least valuable attacker (MVV-LVA), then the two quiet
+ * moves that last caused a cutoff at the same ply (killers), then the other
+ * quiet moves by how often the same piece moving to the same square has cut
+ * off elsewhere in the tree (history). A transposition table remembers each
+ * position's score and best move, so positions reached again are cut short
+ * or at least start with the move that was best last time.
+ * <p>
+ * Each iteration goes one ply deeper until the depth, node or time limit runs
+ * out, so a move is ready however early the search is stopped. A Search keeps
+ * its buffers between calls and allocates nothing per node, so a server can
+ * keep one per bot, and any number of them can share one table. It searches a
+ * copy of the game it's given and is not thread safe, except that stop may be
+ * called from any thread.
+ */
+public final class Search {
+    /**
+     * The deepest any line is searched, check extensions and captures included
+     */
+    public static final int MAX_PLY = 128;
+    /**
+     * The score of delivering mate now; a mate n plies away scores MATE - n
+     */
+    public static final int MATE = 32000;
+    // Scores past this are forced mates
+    static final int MATE_BOUND = MATE - MAX_PLY;
+    private static final int INFINITY = MATE + 1;
+
+    // Move ordering bands, best first; history scores are kept below HISTORY_LIMIT
+    private static final int PV_SCORE = 1 << 24;
+    private static final int HASH_MOVE_SCORE = PV_SCORE - 1;
+    private static final int CAPTURE_SCORE = 1 << 23;
+    private static final int KILLER_SCORE = 1 << 22;
+    private static final int HISTORY_LIMIT = 1 << 21;
+    // MVV-LVA rank by PieceType ordinal: K, Q, B, N, R, P. Bishops and knights are equal
+    private static final int[] ORDER_VALUE = {6, 5, 3, 3, 4, 1};
+    // Checked against the clock once this many nodes have passed
+    private static final int TIME_CHECK_INTERVAL = 1024;
+    private static final int DEFAULT_TABLE_MB = 16;
+    private static final int DEFAULT_PAWN_TABLE_KB = 256;
+
+    /**
+     * How far to search: a depth in plies, plus node and time budgets where 0
+     * means no limit. Whichever runs out first ends the search.
+     */
+    public record Limits(int depth, long nodes, long millis) {
+        public static Limits ofDepth(int depth) {
+            return new Limits(depth, 0, 0);
+        }
+
+        public static Limits ofNodes(long nodes) {
+            return new Limits(MAX_PLY, nodes, 0);
+        }
+
+        public static Limits ofMillis(long millis) {
+            return new Limits(MAX_PLY, 0, millis);
+        }
+    }
+
+    /**
+     * What a search found: the best move (packed, 0 when there is no legal
+     * move), its score in centipawns for the side to move, the deepest
+     * iteration that finished, the principal variation and the work done
+     */
+    public record Result(int move, int score, int depth, int[] pv, long nodes, long nanos) {
+        /**
+         * @return the best move, or null if the side to move has none
+         */
+        public ChessMove chessMove() {
+            return move == 0 ? null : PackedMove.toChessMove(move);
+        }
+
+        /**
+         * @return whether the score is a forced mate, for either side
+         */
+        public boolean isMate() {
+            return Math.abs(score) > MATE_BOUND;
+        }
+
+        public double nodesPerSecond() {
+            return nodes / (nanos / 1e9);
+        }
+    }
+
+    private final TranspositionTable table;
+    private final PawnHashTable pawnTable;
+    private final Tablebase tablebase;
+    // Per ply move lists and their ordering scores, reused at every node of that ply
+    private final int[][] moves = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+    private final int[][] orderScores = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+    private final int[][] killers = new int[MAX_PLY][2];
+    // Indexed by moving piece index and target square
+    private final int[][] history = new int[12][64];
+    // Triangular PV table: pv[ply] holds the best line from ply, up to pvLength[ply]
+    private final int[][] pv = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+    private int[] previousPv = new int[0];
+    // Set while the current node is still on the previous iteration's principal variation
+    private boolean followPv;
+
+    private ChessGame game;
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+    private int rootScore;
+    private boolean stopped;
+    // Set from outside to end the search; shared by every thread of a parallel search
+    private volatile AtomicBoolean cancelled = new AtomicBoolean();
+
+    /**
+     * A search with a transposition table of its own
+     */
+    public Search() {
+        this(new TranspositionTable(DEFAULT_TABLE_MB));
+    }
+
+    /**
+     * A search that reads and writes the given table, which other searches may be using too
+     */
+    public Search(TranspositionTable table) {
+        this(table, new PawnHashTable(DEFAULT_PAWN_TABLE_KB));
+    }
+
+    /**
+     * @param pawnTable a pawn hash table for this search alone, since it isn't thread safe
+     */
+    public Search(TranspositionTable table, PawnHashTable pawnTable) {
+        this(table, pawnTable, null);
+    }
+
+    /**
+     * @param tablebase endgame tables that answer covered positions without
+     *                  searching, or null for none
+     */
+    public Search(TranspositionTable table, PawnHashTable pawnTable, Tablebase tablebase) {
+        this.table = table;
+        this.pawnTable = pawnTable;
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * Searches the position of the given game, which is left untouched
+     */
+    public Result search(ChessGame position, Limits limits) {
+        // Installed before copying, which replays the whole game, so a stop meanwhile still counts
+        AtomicBoolean cancelled = new AtomicBoolean();
+        this.cancelled = cancelled;
+        table.newSearch();
+        return search(position.copy(), limits, 0, cancelled);
+    }
+
+    /**
+     * Searches as one thread of a parallel search, stopping once cancelled is
+     * set. Helpers (any index but 0) with an odd index start a ply deeper, so
+     * the threads spread over two depths and fill the table for each other.
+     * The caller starts the table's new search generation, and hands over a
+     * copy of the game (see ChessGame.copy) for this search alone to play
+     * moves on.
+     */
+    Result search(ChessGame ownCopy, Limits limits, int helper, AtomicBoolean cancelled) {
+        long start = System.nanoTime();
+        this.cancelled = cancelled;
+        game = ownCopy;
+        nodes = 0;
+        nodeLimit = limits.nodes() > 0 ? limits.nodes() : Long.MAX_VALUE;
+        deadline = limits.millis() > 0 ? start + limits.millis() * 1_000_000 : Long.MAX_VALUE;
+        stopped = false;
+        previousPv = new int[0];
+        for (int[] plyKillers : killers) {
+            Arrays.fill(plyKillers, 0);
+        }
+        for (int[] pieceHistory : history) {
+            Arrays.fill(pieceHistory, 0);
+        }
+
+        int[] rootMoves = moves[0];
+        int count = MoveGenerator.generateLegalMoves(game, rootMoves);
+        if (count == 0) {
+            int score = game.isInCheck(game.getTeamTurn()) ? -MATE : 0;
+            return new Result(0, score, 0, previousPv, 0, System.nanoTime() - start);
+        }
+        Tablebase.BestMove known = tablebase == null ? null : tablebase.bestMove(game);
+        if (known != null) {
+            int score = switch (known.probe().outcome()) {
+                case WIN -> MATE - known.probe().plies();
+                case DRAW -> 0;
+                case LOSS -> -MATE + known.probe().plies();
+            };
+            return new Result(known.move(), score, 0, new int[]{known.move()}, 0, System.nanoTime() - start);
+        }
+        // Something to play even if the first iteration doesn't get through a single move
+        Result result = new Result(rootMoves[0], 0, 0, new int[]{rootMoves[0]}, 0, 0);
+        int maxDepth = Math.min(limits.depth(), MAX_PLY - 1);
+        for (int depth = 1 + (helper & 1); depth <= maxDepth; depth++) {
+            followPv = true;
+            int score = negamax(depth, 0, -INFINITY, INFINITY);
+            if (stopped) {
+                // Root moves are only taken as best once fully searched, and the previous best
+                // is searched first, so anything found before the stop is at least as good
+                if (pvLength[0] > 0) {
+                    result = new Result(pv[0][0], rootScore, result.depth(), Arrays.copyOf(pv[0], pvLength[0]), 0, 0);
+                }
+                break;
+            }
+            previousPv = Arrays.copyOf(pv[0], pvLength[0]);
+            result = new Result(previousPv[0], score, depth, previousPv, 0, 0);
+            // Every mate within depth plies has been seen, so the shortest one is known
+            if (Math.abs(score) > MATE_BOUND) {
+                break;
+            }
+        }
+        return new Result(result.move(), result.score(), result.depth(), result.pv(), nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * Asks a running search to finish early; it returns the best move found so
+     * far. A search counts as running from the moment search is called.
+     */
+    public void stop() {
+        cancelled.set(true);
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta) {
+        pvLength[ply] = 0;
+        if (ply > 0 && (game.halfmoveClock() >= 100 || game.isRepeated())) {
+            return 0;
+        }
+        ChessGame.TeamColor team = game.getTeamTurn();
+        boolean inCheck = game.isInCheck(team);
+        if (inCheck) {
+            // Don't let a check push a threat past the horizon
+            depth++;
+        }
+        if (depth <= 0) {
+            return quiesce(ply, alpha, beta);
+        }
+        if (countNode() || ply >= MAX_PLY - 1) {
+            return stopped ? 0 : Evaluation.evaluate(game, pawnTable);
+        }
+
+        long key = game.getZobristKey();
+        long entry = table.probe(key);
+        // The root always searches, since it has to come up with a move
+        if (entry != 0 && ply > 0 && TranspositionTable.depth(entry) >= depth) {
+            int score = TranspositionTable.score(entry, ply);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.BOUND_EXACT
+                    || (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+                    || (bound == TranspositionTable.BOUND_UPPER && score <= alpha)) {
+                return score;
+            }
+        }
+
+        int[] list = moves[ply];
+        int count = MoveGenerator.generateLegalMoves(game, list);
+        if (count == 0) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        boolean onPv = followPv;
+        int pvMove = onPv && ply < previousPv.length ? previousPv[ply] : 0;
+        scoreMoves(ply, count, pvMove, TranspositionTable.move(entry));
+
+        ChessBoard board = game.getBoard();
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = 0;
+        for (int i = 0; i < count; i++) {
+            int move = nextMove(ply, i, count);
+            int moving = board.pieceAt(PackedMove.from(move));
+            boolean quiet = isQuiet(board, move);
+            followPv = onPv && move == pvMove;
+            game.doMove(move);
+            int score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            game.undoMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (ply == 0) {
+                        rootScore = score;
+                    }
+                    if (score >= beta) {
+                        if (quiet) {
+                            rememberCutoff(ply, move, moving, depth);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        followPv = false;
+        // When nothing beat alpha the best move is just the least bad guess, so keep the one stored before
+        int bound = best >= beta ? TranspositionTable.BOUND_LOWER
+                : best > originalAlpha ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER;
+        table.store(key, bound == TranspositionTable.BOUND_UPPER ? 0 : bestMove, best, depth, bound, ply);
+        return best;
+    }
+
+    // Only captures are searched, unless in check where every escape is; otherwise
+    // the side to move may stand pat on the static score instead of capturing
+    private int quiesce(int ply, int alpha, int beta) {
+        pvLength[ply] = 0;
+        if (countNode() || ply >= MAX_PLY - 1) {
+            return stopped ? 0 : Evaluation.evaluate(game, pawnTable);
+        }
+        int[] list = moves[ply];
+        int count;
+        int best;
+        if (game.isInCheck(game.getTeamTurn())) {
+            count = MoveGenerator.generateLegalMoves(game, list);
+            if (count == 0) {
+                return -MATE + ply;
+            }
+            best = -INFINITY;
+        } else {
+            best = Evaluation.evaluate(game, pawnTable);
+            if (best >= beta) {
+                return best;
+            }
+            alpha = Math.max(alpha, best);
+            count = MoveGenerator.legalCaptures(game, list);
+        }
+        scoreMoves(ply, count, 0, 0);
+
+        for (int i = 0; i < count; i++) {
+            int move = nextMove(ply, i, count);
+            game.doMove(move);
+            int score = -quiesce(ply + 1, -beta, -alpha);
+            game.undoMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (score >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Counts a node and checks the limits
+     *
+     * @return whether the search has to stop
+     */
+    private boolean countNode() {
+        nodes++;
+        if (nodes >= nodeLimit || cancelled.get()
+                || (nodes % TIME_CHECK_INTERVAL == 0 && System.nanoTime() >= deadline)) {
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    private void updatePv(int ply, int move) {
+        pv[ply][0] = move;
+        int childLength = pvLength[ply + 1];
+        System.arraycopy(pv[ply + 1], 0, pv[ply], 1, childLength);
+        pvLength[ply] = childLength + 1;
+    }
+
+    private void rememberCutoff(int ply, int move, int moving, int depth) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int[] pieceHistory = history[moving];
+        pieceHistory[PackedMove.to(move)] += depth * depth;
+        if (pieceHistory[PackedMove.to(move)] >= HISTORY_LIMIT) {
+            // Halving everything keeps the order while making room
+            for (int[] scores : history) {
+                for (int square = 0; square < 64; square++) {
+                    scores[square] >>= 1;
+                }
+            }
+        }
+    }
+
+    // Neither a capture nor a promotion
+    private static boolean isQuiet(ChessBoard board, int move) {
+        return captureValue(board, move) < 0 && PackedMove.promotion(move) == null;
+    }
+
+    /**
+     * @return the ORDER_VALUE of the piece the move captures, or -1 if it captures nothing
+     */
+    private static int captureValue(ChessBoard board, int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int victim = board.pieceAt(to);
+        if (victim >= 0) {
+            return ORDER_VALUE[victim % 6];
+        }
+        // A pawn changing file onto an empty square is capturing en passant
+        boolean pawn = ChessPiece.ofIndex(board.pieceAt(from)).getPieceType() == ChessPiece.PieceType.PAWN;
+        return pawn && (from & 7) != (to & 7) ? ORDER_VALUE[ChessPiece.PieceType.PAWN.ordinal()] : -1;
+    }
+
+    private void scoreMoves(int ply, int count, int pvMove, int hashMove) {
+        ChessBoard board = game.getBoard();
+        int[] list = moves[ply];
+        int[] scores = orderScores[ply];
+        int[] plyKillers = killers[ply];
+        for (int i = 0; i < count; i++) {
+            int move = list[i];
+            int victim = captureValue(board, move);
+            if (PackedMove.promotion(move) == ChessPiece.PieceType.QUEEN) {
+                victim = Math.max(victim, 0) + ORDER_VALUE[ChessPiece.PieceType.QUEEN.ordinal()];
+            }
+            int moving = board.pieceAt(PackedMove.from(move));
+            if (move == pvMove) {
+                scores[i] = PV_SCORE;
+            } else if (move == hashMove) {
+                scores[i] = HASH_MOVE_SCORE;
+            } else if (victim >= 0) {
+                scores[i] = CAPTURE_SCORE + victim * 8 - ORDER_VALUE[moving % 6];
+            } else if (move == plyKillers[0]) {
+                scores[i] = KILLER_SCORE + 1;
+            } else if (move == plyKillers[1]) {
+                scores[i] = KILLER_SCORE;
+            } else {
+                scores[i] = history[moving][PackedMove.to(move)];
+            }
+        }
+    }
+
+    // Selection sort, one step at a time: a cutoff usually comes early, so most of the list is never sorted
+    private int nextMove(int ply, int index, int count) {
+        int[] list = moves[ply];
+        int[] scores = orderScores[ply];
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        int move = list[best];
+        list[best] = list[index];
+        list[index] = move;
+        int score = scores[best];
+        scores[best] = scores[index];
+        scores[index] = score;
+        return move;
+    }
+
+    /**
+     * Searches each of the perft reference positions to a fixed depth (default
+     * 6) and reports the move found and the speed
+     */
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+        PawnHashTable pawnTable = new PawnHashTable(DEFAULT_PAWN_TABLE_KB);
+        Search search = new Search(new TranspositionTable(DEFAULT_TABLE_MB), pawnTable);
+        long totalNodes = 0;
+        long totalNanos = 0;
+        for (Perft.Position position : Perft.REFERENCE_POSITIONS) {
+            Result result = search.search(Fen.parse(position.fen()), Limits.ofDepth(depth));
+            System.out.printf("%-12s depth %d: %s score %d, %,d nodes in %.3f s, %,.0f nodes/s%n",
+                    position.name(), result.depth(), PackedMove.toString(result.move()), result.score(),
+                    result.nodes(), result.nanos() / 1e9, result.nodesPerSecond());
+            totalNodes += result.nodes();
+            totalNanos += result.nanos();
+        }
+        System.out.printf("Total: %,d nodes in %.3f s, %,.0f nodes/s, pawn hash hit rate %.1f%%%n", totalNodes,
+                totalNanos / 1e9, totalNodes / (totalNanos / 1e9), pawnTable.hitRate() * 100);
+    }
+}
@@ -0,0 +1,377 @@
+package chess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Endgame tablebases: for every position with a given set of pieces, whether
+ * the side to move wins, draws or loses with best play, and in how many plies
+ * mate comes. Looking a position up replaces searching it.
+ * <p>
+ * Each table is one .ctb file, named for its pieces like KQvK.ctb (white's
+ * pieces, "v", black's, each in KQRBNP order). A table only covers one
+ * colouring, and the reverse is found by turning the board round, so KQvK
+ * also answers KvKQ. A position is indexed by the side to move and each
+ * piece's square in that order, with pieces of the same kind in ascending
+ * square order, which leaves room for tables of up to 5 pieces.
+ * <p>
+ * The file holds one byte per index (see the value constants), deflated in
+ * fixed-size blocks. It is memory-mapped, and the blocks probes land in are
+ * inflated into a shared least-recently-used cache, so repeated probes near
+ * one another cost a hash lookup. TablebaseGenerator builds the files.
+ * Probing is safe from any number of threads.
+ */
+public final class Tablebase implements AutoCloseable {
+    /**
+     * Who wins with best play, from the side to move's point of view
+     */
+    public enum Outcome {
+        WIN,
+        DRAW,
+        LOSS
+    }
+
+    /**
+     * A tablebase answer: the outcome, and for a win or loss the number of
+     * plies until mate (0 when the side to move is already mated)
+     */
+    public record Probe(Outcome outcome, int plies) {
+    }
+
+    /**
+     * A move (packed) and the probe of the position it leads to, from the mover's point of view
+     */
+    public record BestMove(int move, Probe probe) {
+        public ChessMove chessMove() {
+            return PackedMove.toChessMove(move);
+        }
+    }
+
+    /**
+     * The most pieces, kings included, a table may hold
+     */
+    public static final int MAX_PIECES = 5;
+    static final String FILE_SUFFIX = ".ctb";
+    static final int MAGIC = 0x43544231; // "CTB1"
+    static final int BLOCK_ENTRIES = 4096;
+
+    // Entry values: 0 is a draw, 1..126 a win in that many plies, 128 + n a loss in n plies
+    static final int DRAW = 0;
+    static final int MAX_PLIES = 125;
+    static final int LOSS = 128;
+    static final int ILLEGAL = 255;
+
+    private static final String PIECE_ORDER = "KQRBNP";
+    private static final ChessPiece.PieceType[] TYPES_BY_LETTER = {
+            ChessPiece.PieceType.KING, ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.ROOK,
+            ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.PAWN
+    };
+
+    // One mapped file: its pieces in index order and where each block's deflated bytes start
+    private record Table(int id, int[] pieces, long entries, ByteBuffer data, long[] blockOffsets) {
+    }
+
+    private final Map<String, Table> tables = new HashMap<>();
+    private final Map<Long, byte[]> blockCache;
+    private long cacheHits;
+    private long cacheMisses;
+
+    /**
+     * Maps every table in the directory
+     *
+     * @param cachedBlocks how many inflated blocks to keep, each BLOCK_ENTRIES bytes
+     * @throws IllegalArgumentException if a .ctb file is malformed
+     */
+    public Tablebase(Path directory, int cachedBlocks) throws IOException {
+        blockCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                return size() > Math.max(cachedBlocks, 1);
+            }
+        };
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                tables.put(name.substring(0, name.length() - FILE_SUFFIX.length()), map(file, tables.size()));
+            }
+        }
+    }
+
+    private static Table map(Path file, int id) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Tablebase file too large: " + file);
+            }
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try {
+                if (data.getInt(0) != MAGIC) {
+                    throw new IllegalArgumentException("Not a tablebase file: " + file);
+                }
+                int pieceCount = data.get(4);
+                int[] pieces = new int[pieceCount];
+                for (int i = 0; i < pieceCount; i++) {
+                    pieces[i] = data.get(5 + i);
+                }
+                int position = 5 + pieceCount;
+                long entries = data.getLong(position);
+                int blockCount = data.getInt(position + 8);
+                long[] offsets = new long[blockCount + 1];
+                for (int i = 0; i <= blockCount; i++) {
+                    offsets[i] = data.getLong(position + 12 + i * 8);
+                }
+                if (pieceCount < 2 || pieceCount > MAX_PIECES || entries != entryCount(pieceCount)
+                        || offsets[blockCount] > data.capacity()) {
+                    throw new IllegalArgumentException("Corrupt tablebase header: " + file);
+                }
+                return new Table(id, pieces, entries, data, offsets);
+            } catch (IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Truncated tablebase file: " + file, e);
+            }
+        }
+    }
+
+    /**
+     * @return the number of tables found
+     */
+    public int size() {
+        return tables.size();
+    }
+
+    /**
+     * @return whether there's a table for the given pieces in either colouring, e.g. "KRvK"
+     */
+    public boolean contains(String signature) {
+        return tables.containsKey(signature) || tables.containsKey(swapColors(signature));
+    }
+
+    /**
+     * Looks the position up. Bare kings, or a lone minor piece, are answered as
+     * draws without a table.
+     *
+     * @return the answer, or null if no table covers the pieces, or the position
+     * has castling or en passant rights, which tables don't record
+     */
+    public Probe probe(ChessGame game) {
+        if (game.castlingRights() != 0 || game.enPassantSquare() >= 0) {
+            return null;
+        }
+        if (isInsufficientMaterial(game.getBoard())) {
+            return new Probe(Outcome.DRAW, 0);
+        }
+        String signature = signature(game.getBoard());
+        Table table = tables.get(signature);
+        boolean flipped = false;
+        if (table == null) {
+            table = tables.get(swapColors(signature));
+            flipped = true;
+        }
+        if (table == null) {
+            return null;
+        }
+        long index = index(game.getBoard(), game.getTeamTurn(), table.pieces(), flipped);
+        return decode(entry(table, index));
+    }
+
+    /**
+     * Picks the best move by probing the position after each one: the
+     * quickest win, else a draw, else the slowest loss
+     *
+     * @return the move, or null if there is none or some move leads outside the tables
+     */
+    public BestMove bestMove(ChessGame game) {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegalMoves(game, moves);
+        int bestMove = 0;
+        int bestRank = Integer.MIN_VALUE;
+        Probe bestProbe = null;
+        for (int i = 0; i < count; i++) {
+            game.doMove(moves[i]);
+            Probe reply = probe(game);
+            game.undoMove();
+            if (reply == null) {
+                return null;
+            }
+            Probe probe = switch (reply.outcome()) {
+                case WIN -> new Probe(Outcome.LOSS, reply.plies() + 1);
+                case DRAW -> reply;
+                case LOSS -> new Probe(Outcome.WIN, reply.plies() + 1);
+            };
+            int rank = switch (probe.outcome()) {
+                case WIN -> 1000 - probe.plies();
+                case DRAW -> 0;
+                case LOSS -> -1000 + probe.plies();
+            };
+            if (rank > bestRank) {
+                bestRank = rank;
+                bestMove = moves[i];
+                bestProbe = probe;
+            }
+        }
+        return bestMove == 0 ? null : new BestMove(bestMove, bestProbe);
+    }
+
+    public synchronized long cacheHits() {
+        return cacheHits;
+    }
+
+    public synchronized long cacheMisses() {
+        return cacheMisses;
+    }
+
+    private int entry(Table table, long index) {
+        int block = (int) (index / BLOCK_ENTRIES);
+        long cacheKey = ((long) table.id() << 32) | block;
+        byte[] entries;
+        synchronized (this) {
+            entries = blockCache.get(cacheKey);
+            if (entries != null) {
+                cacheHits++;
+            } else {
+                cacheMisses++;
+            }
+        }
+        if (entries == null) {
+            // Inflate outside the lock; two threads missing the same block just both inflate it
+            entries = inflate(table, block);
+            synchronized (this) {
+                blockCache.put(cacheKey, entries);
+            }
+        }
+        return entries[(int) (index % BLOCK_ENTRIES)] & 0xFF;
+    }
+
+    private static byte[] inflate(Table table, int block) {
+        long[] offsets = table.blockOffsets();
+        byte[] compressed = new byte[(int) (offsets[block + 1] - offsets[block])];
+        table.data().get((int) offsets[block], compressed);
+        int length = (int) Math.min(BLOCK_ENTRIES, table.entries() - (long) block * BLOCK_ENTRIES);
+        byte[] entries = new byte[length];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            if (inflater.inflate(entries) != length) {
+                throw new IllegalStateException("Tablebase block " + block + " is short");
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Tablebase block " + block + " is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+        return entries;
+    }
+
+    static Probe decode(int value) {
+        if (value == ILLEGAL) {
+            throw new IllegalStateException("Tablebase lookup of an illegal position");
+        }
+        if (value == DRAW) {
+            return new Probe(Outcome.DRAW, 0);
+        }
+        return value < LOSS ? new Probe(Outcome.WIN, value) : new Probe(Outcome.LOSS, value - LOSS);
+    }
+
+    static long entryCount(int pieceCount) {
+        return 2L << (6 * pieceCount);
+    }
+
+    /**
+     * @return the pieces of a signature like "KPvK" as piece indices, white's first
+     */
+    static int[] pieces(String signature) {
+        int split = signature.indexOf('v');
+        if (split < 1 || signature.length() - 1 > MAX_PIECES || signature.charAt(0) != 'K'
+                || split + 1 >= signature.length() || signature.charAt(split + 1) != 'K') {
+            throw new IllegalArgumentException("Not a tablebase signature: " + signature);
+        }
+        int[] pieces = new int[signature.length() - 1];
+        for (int i = 0, p = 0; i < signature.length(); i++) {
+            if (i == split) {
+                continue;
+            }
+            int letter = PIECE_ORDER.indexOf(signature.charAt(i));
+            if (letter < 0) {
+                throw new IllegalArgumentException("Not a tablebase signature: " + signature);
+            }
+            ChessGame.TeamColor color = i < split ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+            pieces[p++] = ChessPiece.index(color, TYPES_BY_LETTER[letter]);
+        }
+        return pieces;
+    }
+
+    static String signature(ChessBoard board) {
+        return side(board, ChessGame.TeamColor.WHITE) + "v" + side(board, ChessGame.TeamColor.BLACK);
+    }
+
+    private static String side(ChessBoard board, ChessGame.TeamColor color) {
+        StringBuilder side = new StringBuilder();
+        for (int letter = 0; letter < PIECE_ORDER.length(); letter++) {
+            int count = Long.bitCount(board.pieces(color, TYPES_BY_LETTER[letter]));
+            side.append(String.valueOf(PIECE_ORDER.charAt(letter)).repeat(count));
+        }
+        return side.toString();
+    }
+
+    static String swapColors(String signature) {
+        int split = signature.indexOf('v');
+        return signature.substring(split + 1) + "v" + signature.substring(0, split);
+    }
+
+    /**
+     * The index of the position in a table with the given pieces. When flipped,
+     * the table's white pieces are the board's black ones and the board is
+     * read upside down.
+     */
+    static long index(ChessBoard board, ChessGame.TeamColor toMove, int[] pieces, boolean flipped) {
+        boolean whiteToMove = (toMove == ChessGame.TeamColor.WHITE) != flipped;
+        long index = whiteToMove ? 0 : 1;
+        int i = 0;
+        while (i < pieces.length) {
+            ChessPiece piece = ChessPiece.ofIndex(pieces[i]);
+            ChessGame.TeamColor color = flipped ? ChessGame.opponent(piece.getTeamColor()) : piece.getTeamColor();
+            long set = board.pieces(color, piece.getPieceType());
+            if (flipped) {
+                set = Long.reverseBytes(set);
+            }
+            // Pieces of one kind sit next to each other in the list and take the squares in ascending order
+            for (; set != 0; set &= set - 1) {
+                index = index * 64 + Long.numberOfTrailingZeros(set);
+                i++;
+            }
+        }
+        return index;
+    }
+
+    static boolean isInsufficientMaterial(ChessBoard board) {
+        long kings = board.pieces(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING)
+                | board.pieces(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING);
+        long others = board.occupied() & ~kings;
+        if (others == 0) {
+            return true;
+        }
+        long minors = board.pieces(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP)
+                | board.pieces(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP)
+                | board.pieces(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT)
+                | board.pieces(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT);
+        return Long.bitCount(others) == 1 && (others & minors) != 0;
+    }
+
+    /**
+     * Unmaps nothing itself, since mappings are released with the garbage
+     * collector, but drops the cache
+     */
+    @Override
+    public synchronized void close() {
+        blockCache.clear();
+        tables.clear();
+    }
+}
@@ -0,0 +1,255 @@
+package chess;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.zip.Deflater;
+
+/**
+ * Builds Tablebase files by retrograde analysis: every position is set up and
+ * its moves generated once, mates and stalemates are marked, and then each
+ * pass marks a position won in k plies if a move reaches a position lost in
+ * k - 1, and lost in k plies if every move reaches a position already won,
+ * until a pass changes nothing. Whatever is left is a draw.
+ * <p>
+ * Positions are set up, and each pass runs, in parallel over every core. Moves
+ * that change the pieces, captures and promotions, are answered from tables
+ * that already exist, so KPvK needs KQvK and KRvK first. Every move of every
+ * position is kept in memory, which is why only tables of up to 3 pieces are
+ * built here.
+ * <p>
+ * Run it with {@code mvn -pl shared exec:java -Dexec.mainClass=chess.TablebaseGenerator -Dexec.args="tablebases"}
+ * to write KQvK, KRvK and KPvK into the given directory.
+ */
+public final class TablebaseGenerator {
+    /**
+     * The most pieces, kings included, of a table this class builds
+     */
+    public static final int MAX_PIECES = 3;
+    /**
+     * The tables main builds, in an order where each only needs the ones before it
+     */
+    public static final String[] BASIC_ENDGAMES = {"KQvK", "KRvK", "KPvK"};
+    // Only while generating: not yet known
+    private static final int UNKNOWN = 254;
+
+    private TablebaseGenerator() {
+    }
+
+    /**
+     * Builds the table for the given pieces and writes it to directory/signature.ctb
+     *
+     * @param subTables the tables captures and promotions lead to, or null if no move can change the pieces
+     * @throws IllegalArgumentException if the signature isn't valid or has more than MAX_PIECES pieces
+     * @throws IllegalStateException    if a capture or promotion leads to a position subTables doesn't cover
+     */
+    public static Path generate(String signature, Path directory, Tablebase subTables) throws IOException {
+        byte[] entries = generate(signature, subTables);
+        Path file = directory.resolve(signature + Tablebase.FILE_SUFFIX);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            write(Tablebase.pieces(signature), entries, out);
+        }
+        return file;
+    }
+
+    /**
+     * Builds every table in BASIC_ENDGAMES into the directory
+     */
+    public static void generateBasicEndgames(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (String signature : BASIC_ENDGAMES) {
+            try (Tablebase subTables = new Tablebase(directory, 64)) {
+                generate(signature, directory, subTables);
+            }
+        }
+    }
+
+    /**
+     * @return the table's entries, one per index, see Tablebase for the values
+     */
+    static byte[] generate(String signature, Tablebase subTables) {
+        int[] pieces = Tablebase.pieces(signature);
+        if (pieces.length > MAX_PIECES) {
+            throw new IllegalArgumentException("Only tables of up to " + MAX_PIECES + " pieces can be generated");
+        }
+        int entryCount = (int) Tablebase.entryCount(pieces.length);
+        byte[] entries = new byte[entryCount];
+        // Each legal position's moves: the index it reaches, or for a move off the table,
+        // -1 - the value of where it leads
+        int[][] successors = new int[entryCount][];
+        ThreadLocal<ChessGame> games = ThreadLocal.withInitial(ChessGame::new);
+        ThreadLocal<int[]> buffers = ThreadLocal.withInitial(() -> new int[MoveGenerator.MAX_MOVES]);
+        IntStream.range(0, entryCount).parallel().forEach(index -> {
+            ChessGame game = games.get();
+            if (!setUp(game, pieces, index)) {
+                entries[index] = (byte) Tablebase.ILLEGAL;
+                return;
+            }
+            int[] moves = buffers.get();
+            int count = MoveGenerator.generateLegalMoves(game, moves);
+            if (count == 0) {
+                entries[index] = (byte) (game.isInCheck(game.getTeamTurn()) ? Tablebase.LOSS : Tablebase.DRAW);
+                return;
+            }
+            int[] children = new int[count];
+            for (int i = 0; i < count; i++) {
+                children[i] = successor(game, moves[i], signature, pieces, subTables);
+            }
+            successors[index] = children;
+            entries[index] = (byte) UNKNOWN;
+        });
+
+        AtomicBoolean changed = new AtomicBoolean(true);
+        for (int plies = 1; changed.get(); plies++) {
+            if (plies > Tablebase.MAX_PLIES) {
+                throw new IllegalStateException(signature + " has mates too long to store");
+            }
+            changed.set(false);
+            int k = plies;
+            // Entries written during a pass are k plies, which no test in the same pass looks for,
+            // so positions can be updated in place
+            IntStream.range(0, entryCount).parallel().forEach(index -> {
+                if ((entries[index] & 0xFF) == UNKNOWN) {
+                    int value = resolve(entries, successors[index], k);
+                    if (value != UNKNOWN) {
+                        entries[index] = (byte) value;
+                        changed.set(true);
+                    }
+                }
+            });
+        }
+        for (int index = 0; index < entryCount; index++) {
+            if ((entries[index] & 0xFF) == UNKNOWN) {
+                entries[index] = Tablebase.DRAW;
+            }
+        }
+        return entries;
+    }
+
+    // The value for a position k plies from mate, if it is
+    private static int resolve(byte[] entries, int[] children, int k) {
+        boolean allWon = true;
+        for (int child : children) {
+            int value = child >= 0 ? entries[child] & 0xFF : -1 - child;
+            if (value == Tablebase.LOSS + k - 1) {
+                return k;
+            }
+            // A win shorter than k plies; UNKNOWN and losses fail this too
+            allWon &= value > Tablebase.DRAW && value < k;
+        }
+        return allWon ? Tablebase.LOSS + k : UNKNOWN;
+    }
+
+    // Sets the game up as the position at index, unless it's one that can't happen
+    private static boolean setUp(ChessGame game, int[] pieces, int index) {
+        ChessBoard board = new ChessBoard();
+        int squares = index;
+        long occupied = 0;
+        int previousSquare = -1;
+        for (int i = pieces.length - 1; i >= 0; i--) {
+            int square = squares & 63;
+            squares >>>= 6;
+            ChessPiece piece = ChessPiece.ofIndex(pieces[i]);
+            if ((occupied & Bitboards.bit(square)) != 0) {
+                return false;
+            }
+            if (piece.getPieceType() == ChessPiece.PieceType.PAWN && (square < 8 || square >= 56)) {
+                return false;
+            }
+            // Identical pieces are indexed in ascending square order only, and read here from the last
+            if (i + 1 < pieces.length && pieces[i + 1] == pieces[i] && square >= previousSquare) {
+                return false;
+            }
+            occupied |= Bitboards.bit(square);
+            board.setPiece(square, pieces[i]);
+            previousSquare = square;
+        }
+        game.setBoard(board);
+        game.setPositionState(0, -1, 0, 1);
+        ChessGame.TeamColor toMove = squares == 0 ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        game.setTeamTurn(toMove);
+        // The side that just moved can't have left its king in check
+        return !game.isInCheck(ChessGame.opponent(toMove));
+    }
+
+    private static int successor(ChessGame game, int move, String signature, int[] pieces, Tablebase subTables) {
+        game.doMove(move);
+        try {
+            if (Tablebase.signature(game.getBoard()).equals(signature)) {
+                return (int) Tablebase.index(game.getBoard(), game.getTeamTurn(), pieces, false);
+            }
+            Tablebase.Probe probe = subTables == null ? null : subTables.probe(game);
+            if (probe == null) {
+                throw new IllegalStateException(signature + " needs a table for " + Tablebase.signature(game.getBoard()));
+            }
+            return -1 - encode(probe);
+        } finally {
+            game.undoMove();
+        }
+    }
+
+    static int encode(Tablebase.Probe probe) {
+        return switch (probe.outcome()) {
+            case WIN -> probe.plies();
+            case DRAW -> Tablebase.DRAW;
+            case LOSS -> Tablebase.LOSS + probe.plies();
+        };
+    }
+
+    /**
+     * Writes a table: a header of the magic number, the pieces, the entry
+     * count and where each block starts, then the entries deflated in blocks
+     * of Tablebase.BLOCK_ENTRIES
+     */
+    static void write(int[] pieces, byte[] entries, OutputStream out) throws IOException {
+        int blockCount = (entries.length + Tablebase.BLOCK_ENTRIES - 1) / Tablebase.BLOCK_ENTRIES;
+        ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+        long[] offsets = new long[blockCount + 1];
+        long headerBytes = Integer.BYTES + 1 + pieces.length + Long.BYTES + Integer.BYTES + (long) Long.BYTES * (blockCount + 1);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        byte[] buffer = new byte[Tablebase.BLOCK_ENTRIES * 2];
+        try {
+            for (int block = 0; block < blockCount; block++) {
+                offsets[block] = headerBytes + blocks.size();
+                int start = block * Tablebase.BLOCK_ENTRIES;
+                deflater.reset();
+                deflater.setInput(Arrays.copyOfRange(entries, start, Math.min(start + Tablebase.BLOCK_ENTRIES, entries.length)));
+                deflater.finish();
+                while (!deflater.finished()) {
+                    blocks.write(buffer, 0, deflater.deflate(buffer));
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+        offsets[blockCount] = headerBytes + blocks.size();
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(Tablebase.MAGIC);
+        data.writeByte(pieces.length);
+        for (int piece : pieces) {
+            data.writeByte(piece);
+        }
+        data.writeLong(entries.length);
+        data.writeInt(blockCount);
+        for (long offset : offsets) {
+            data.writeLong(offset);
+        }
+        blocks.writeTo(data);
+        data.flush();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Path.of(args.length > 0 ? args[0] : "tablebases");
+        long start = System.nanoTime();
+        generateBasicEndgames(directory);
+        System.out.printf("Wrote %s to %s in %.1f s%n", String.join(", ", BASIC_ENDGAMES), directory.toAbsolutePath(),
+                (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,176 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size hash table of search results keyed by Zobrist key, so a
+ * position reached again by a different move order, or in a later search, is
+ * not searched twice.
+ * <p>
+ * Entries are two longs in one long[]: the key XORed with the data, then the
+ * data (best move, score, depth, bound type and the search generation that
+ * stored it). Several search threads can share one table with no locking: a
+ * reader only trusts an entry if XORing its two words gives back the key it
+ * asked for, so an entry torn by two threads writing at once just reads as a
+ * miss.
+ * <p>
+ * Entries come in buckets of two. A position goes back in the slot it was
+ * already in, otherwise it replaces whichever of the two is worth less:
+ * shallower, or left over from an older search.
+ */
+public final class TranspositionTable {
+    static final int BOUND_UPPER = 1;
+    static final int BOUND_LOWER = 2;
+    static final int BOUND_EXACT = 3;
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int BUCKET_LONGS = 4;
+    private static final int GENERATION_MASK = 0x3F;
+    // Each search generation an entry is old costs it this much depth when choosing what to replace
+    private static final int AGE_PENALTY = 8;
+
+    private final long[] table;
+    private final int bucketMask;
+    private int generation;
+
+    /**
+     * @param megabytes the most memory the table may use, rounded down to a
+     *                  power of two number of buckets
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Transposition table size must be at least 1 MB");
+        }
+        long buckets = Long.highestOneBit((long) megabytes * (1 << 20) / (ENTRY_BYTES * 2));
+        // A Java array holds at most 2^31 - 1 longs
+        buckets = Math.min(buckets, 1 << 28);
+        table = new long[(int) buckets * BUCKET_LONGS];
+        bucketMask = (int) buckets - 1;
+    }
+
+    /**
+     * Starts a new search, so entries from earlier ones are the first to be replaced
+     */
+    void newSearch() {
+        generation = (generation + 1) & GENERATION_MASK;
+    }
+
+    /**
+     * @return the stored data for the position, or 0 if the table doesn't hold it
+     */
+    long probe(long key) {
+        int bucket = bucket(key);
+        for (int slot = bucket; slot < bucket + BUCKET_LONGS; slot += 2) {
+            long data = table[slot + 1];
+            if ((table[slot] ^ data) == key && data != 0) {
+                return data;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Stores a search result. A move of 0 keeps the move already stored for the position.
+     *
+     * @param ply the distance from the search root, so mate scores can be stored
+     *            relative to this position rather than the root
+     */
+    void store(long key, int move, int score, int depth, int bound, int ply) {
+        int bucket = bucket(key);
+        int slot = -1;
+        for (int candidate = bucket; candidate < bucket + BUCKET_LONGS; candidate += 2) {
+            long data = table[candidate + 1];
+            if ((table[candidate] ^ data) == key && data != 0) {
+                slot = candidate;
+                if (move == 0) {
+                    move = move(data);
+                }
+                break;
+            }
+        }
+        if (slot < 0) {
+            slot = worth(table[bucket + 1]) <= worth(table[bucket + 3]) ? bucket : bucket + 2;
+        }
+        long data = (move & 0xFFFFL)
+                | ((toStored(score, ply) & 0xFFFFL) << 16)
+                | ((long) Math.min(Math.max(depth, 0), 0xFF) << 32)
+                | ((long) bound << 40)
+                | ((long) generation << 42);
+        table[slot] = key ^ data;
+        table[slot + 1] = data;
+    }
+
+    private int worth(long data) {
+        if (data == 0) {
+            return Integer.MIN_VALUE;
+        }
+        int age = (generation - (int) (data >>> 42)) & GENERATION_MASK;
+        return depth(data) - age * AGE_PENALTY;
+    }
+
+    private int bucket(long key) {
+        return ((int) key & bucketMask) * BUCKET_LONGS;
+    }
+
+    static int move(long data) {
+        return (int) (data & 0xFFFF);
+    }
+
+    /**
+     * @return the stored score, with mate scores counted from the root again
+     */
+    static int score(long data, int ply) {
+        int score = (short) (data >>> 16);
+        if (score > Search.MATE_BOUND) {
+            return score - ply;
+        }
+        return score < -Search.MATE_BOUND ? score + ply : score;
+    }
+
+    static int depth(long data) {
+        return (int) (data >>> 32) & 0xFF;
+    }
+
+    static int bound(long data) {
+        return (int) (data >>> 40) & 0x3;
+    }
+
+    // Mate scores are stored as distance from this position, which is the same however it was reached
+    private static int toStored(int score, int ply) {
+        if (score > Search.MATE_BOUND) {
+            return score + ply;
+        }
+        return score < -Search.MATE_BOUND ? score - ply : score;
+    }
+
+    /**
+     * Forgets every entry
+     */
+    public void clear() {
+        Arrays.fill(table, 0);
+        generation = 0;
+    }
+
+    /**
+     * @return the number of entries the table can hold
+     */
+    public int capacity() {
+        return table.length / 2;
+    }
+
+    /**
+     * @return how full the table is with entries from the current search, in
+     * thousandths, estimated from the first thousand entries
+     */
+    public int hashfull() {
+        int sampled = Math.min(1000, capacity());
+        int used = 0;
+        for (int i = 0; i < sampled; i++) {
+            long data = table[i * 2 + 1];
+            if (data != 0 && (int) (data >>> 42) == generation) {
+                used++;
+            }
+        }
+        return used * 1000 / sampled;
+    }
+}
@@ -0,0 +1,105 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * The records ChessGame needs to take back moves, most recent on top.
+ * <p>
+ * Each entry is the packed move plus one int holding everything the move
+ * destroys: the captured piece, castling rights, en passant square and
+ * halfmove clock. The board's attack maps from before the move ride along so
+ * undoing doesn't leave them stale, and so does the position's Zobrist key,
+ * which makes the stack double as the game's history for repetition checks.
+ * Entries live in parallel primitive arrays that only grow, so make/unmake at
+ * any depth never allocates or hashes.
+ */
+final class UndoStack {
+    private int[] moves = new int[64];
+    private int[] states = new int[64];
+    private long[] keys = new long[64];
+    private long[] attackMaps = new long[128];
+    private boolean[] attackMapsValid = new boolean[64];
+    private int size;
+
+    static int packState(int capturedIndex, int castlingRights, int enPassantSquare, int halfmoveClock) {
+        return (capturedIndex + 1) | (castlingRights << 4) | ((enPassantSquare + 1) << 8) | (halfmoveClock << 15);
+    }
+
+    /**
+     * @return the piece index captured by the move, or -1
+     */
+    static int capturedIndex(int state) {
+        return (state & 0xF) - 1;
+    }
+
+    static int castlingRights(int state) {
+        return (state >>> 4) & 0xF;
+    }
+
+    /**
+     * @return the en passant square before the move, or -1
+     */
+    static int enPassantSquare(int state) {
+        return ((state >>> 8) & 0x7F) - 1;
+    }
+
+    static int halfmoveClock(int state) {
+        return state >>> 15;
+    }
+
+    void push(int move, int state, long key, ChessBoard board) {
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, size * 2);
+            states = Arrays.copyOf(states, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+            attackMaps = Arrays.copyOf(attackMaps, size * 4);
+            attackMapsValid = Arrays.copyOf(attackMapsValid, size * 2);
+        }
+        moves[size] = move;
+        states[size] = state;
+        keys[size] = key;
+        attackMapsValid[size] = board.saveAttackMaps(attackMaps, size * 2);
+        size++;
+    }
+
+    int topMove() {
+        return moves[size - 1];
+    }
+
+    int topState() {
+        return states[size - 1];
+    }
+
+    /**
+     * Drops the top entry, handing its attack maps back to the board, which
+     * must already be back in the position from before the move
+     */
+    void pop(ChessBoard board) {
+        size--;
+        board.restoreAttackMaps(attackMaps, size * 2, attackMapsValid[size]);
+    }
+
+    /**
+     * Counts earlier positions with the given key, looking back no more than
+     * the given number of plies. Only positions with the same side to move can
+     * match, so every other entry is skipped.
+     */
+    int repetitions(long key, int plies) {
+        int matches = 0;
+        int oldest = Math.max(size - plies, 0);
+        for (int i = size - 2; i >= oldest; i -= 2) {
+            if (keys[i] == key) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,55 @@
+package chess;
+
+/**
+ * Random keys for Zobrist hashing. A position's key is the XOR of the key for
+ * every piece on its square, plus the side-to-move, castling-rights and en
+ * passant keys that apply, so a move updates it with a handful of XORs.
+ * <p>
+ * The keys come from a fixed seed, so the same position hashes the same in
+ * every run and on every server.
+ */
+final class Zobrist {
+    static final long[][] PIECE_SQUARE = new long[12][64];
+    // PIECE_SQUARE for pawns and 0 for every other piece, so XORing it in gives a key of the pawns alone
+    static final long[][] PAWN_SQUARE = new long[12][64];
+    static final long BLACK_TO_MOVE;
+    static final long[] CASTLING = new long[16];
+    static final long[] EN_PASSANT_FILE = new long[8];
+
+    static {
+        long[] seed = {0x9E3779B97F4A7C15L};
+        for (long[] squares : PIECE_SQUARE) {
+            for (int sq = 0; sq < 64; sq++) {
+                squares[sq] = next(seed);
+            }
+        }
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            int pawn = ChessPiece.index(color, ChessPiece.PieceType.PAWN);
+            PAWN_SQUARE[pawn] = PIECE_SQUARE[pawn];
+        }
+        BLACK_TO_MOVE = next(seed);
+        // One key per castling right; a combination is the XOR of its rights
+        long[] rightKeys = {next(seed), next(seed), next(seed), next(seed)};
+        for (int rights = 0; rights < 16; rights++) {
+            for (int bit = 0; bit < 4; bit++) {
+                if ((rights & (1 << bit)) != 0) {
+                    CASTLING[rights] ^= rightKeys[bit];
+                }
+            }
+        }
+        for (int file = 0; file < 8; file++) {
+            EN_PASSANT_FILE[file] = next(seed);
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    // splitmix64
+    private static long next(long[] seed) {
+        long z = (seed[0] += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
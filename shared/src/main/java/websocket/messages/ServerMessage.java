@@ -1,5 +1,8 @@
 package websocket.messages;
 
+import chess.ChessGame;
+import chess.GameCodec;
+
 import java.util.Objects;
 
 /**
@@ -25,20 +28,39 @@ public class ServerMessage {
         return this.serverMessageType;
     }
 
-    public class LoadGameMessage extends ServerMessage {
-        private final Object game;
+    /**
+     * The game to draw, sent as the Base64 text of GameCodec.encodeBase64: the
+     * position only, a few dozen bytes, and a plain string Gson reads back
+     * without knowing anything about ChessGame
+     */
+    public static class LoadGameMessage extends ServerMessage {
+        private final String game;
 
-        public LoadGameMessage(Object game) {
+        public LoadGameMessage(ChessGame game) {
             super(ServerMessageType.LOAD_GAME);
-            this.game = game;
+            this.game = GameCodec.encodeBase64(game);
         }
 
-        public Object getGame() {
+        /**
+         * @return the encoded game, as sent
+         */
+        public String getGame() {
             return game;
         }
+
+        /**
+         * @return a new game in the sent position
+         * @throws IllegalArgumentException if the payload isn't an encoded game
+         */
+        public ChessGame decodeGame() {
+            if (game == null) {
+                throw new IllegalArgumentException("LOAD_GAME message has no game");
+            }
+            return GameCodec.decodeBase64(game);
+        }
     }
 
-    public class ErrorMessage extends ServerMessage {
+    public static class ErrorMessage extends ServerMessage {
         public String errorMessage;
 
         public ErrorMessage(String errorMessage) {
@@ -47,7 +69,7 @@ public class ServerMessage {
         }
     }
 
-    public class NotificationMessage extends ServerMessage {
+    public static class NotificationMessage extends ServerMessage {
         private final String message;
 
         public NotificationMessage(String message) {
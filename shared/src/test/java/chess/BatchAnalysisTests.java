@@ -0,0 +1,90 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BatchAnalysisTests {
+
+    @Test
+    public void perftCountsComeBackInInputOrder() throws IOException {
+        StringBuilder input = new StringBuilder();
+        List<Long> expected = new ArrayList<>();
+        for (int repeat = 0; repeat < 5; repeat++) {
+            for (Perft.Position position : Perft.REFERENCE_POSITIONS) {
+                input.append(position.fen()).append('\n');
+                expected.add(position.nodes()[2]);
+            }
+        }
+        List<BatchAnalysis.Analysis> results = new ArrayList<>();
+        BatchAnalysis.Result result = BatchAnalysis.analyse(new StringReader(input.toString()),
+                BatchAnalysis.Task.perft(3), 3, 4, results::add);
+
+        Assertions.assertEquals(expected.size(), result.analysed());
+        Assertions.assertEquals(0, result.rejected());
+        long nodes = 0;
+        for (int i = 0; i < results.size(); i++) {
+            Assertions.assertEquals(i + 1, results.get(i).line());
+            Assertions.assertEquals(expected.get(i), results.get(i).value());
+            nodes += expected.get(i);
+        }
+        Assertions.assertEquals(nodes, result.nodes());
+    }
+
+    @Test
+    public void badLinesAreSkippedAndCounted() throws IOException {
+        String input = """
+                rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1 ; start
+
+                not a position
+                7k/6Q1/6K1/8/8/8/8/8 b - - 0 1
+                """;
+        List<BatchAnalysis.Analysis> results = new ArrayList<>();
+        BatchAnalysis.Result result = BatchAnalysis.analyse(new StringReader(input), BatchAnalysis.Task.evaluate(),
+                2, 2, results::add);
+
+        Assertions.assertEquals(2, result.analysed());
+        Assertions.assertEquals(1, result.rejected());
+        Assertions.assertEquals(1, results.get(0).line());
+        Assertions.assertEquals("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", results.get(0).fen());
+        Assertions.assertEquals(4, results.get(1).line());
+        Assertions.assertEquals(-Search.MATE, results.get(1).value());
+    }
+
+    @Test
+    public void searchesFindTheMove() throws IOException {
+        String input = "6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1\n".repeat(3);
+        List<BatchAnalysis.Analysis> results = new ArrayList<>();
+        BatchAnalysis.analyse(new StringReader(input), BatchAnalysis.Task.search(3), 2, 1, results::add);
+
+        Assertions.assertEquals(3, results.size());
+        for (BatchAnalysis.Analysis analysis : results) {
+            Assertions.assertEquals(new ChessMove(ChessPosition.of(1, 1), ChessPosition.of(8, 1), null), analysis.chessMove());
+            Assertions.assertEquals(Search.MATE - 1, analysis.value());
+        }
+    }
+
+    @Test
+    public void sinkFailuresStopTheRun() {
+        String input = "8/8/8/8/8/8/8/K6k w - - 0 1\n".repeat(100);
+        IllegalStateException thrown = Assertions.assertThrows(IllegalStateException.class, () ->
+                BatchAnalysis.analyse(new StringReader(input), BatchAnalysis.Task.evaluate(), 2, 8, analysis -> {
+                    throw new IllegalStateException("disk full");
+                }));
+        Assertions.assertEquals("disk full", thrown.getMessage());
+    }
+
+    @Test
+    public void badSettingsAreRejectedUpFront() {
+        List<BatchAnalysis.Analysis> results = new ArrayList<>();
+        Assertions.assertThrows(IllegalArgumentException.class, () ->
+                BatchAnalysis.analyse(new StringReader(Fen.START_POSITION), BatchAnalysis.Task.evaluate(), 2, 0, results::add));
+        Assertions.assertThrows(IllegalArgumentException.class, () ->
+                BatchAnalysis.analyse(new StringReader(Fen.START_POSITION), BatchAnalysis.Task.evaluate(), 0, 8, results::add));
+        Assertions.assertTrue(results.isEmpty());
+    }
+}
@@ -0,0 +1,50 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ChessBoardAdapterTests {
+    // Gson's output for a game after 1.e4 e5 2.Nf3 from the code before ChessBoard moved to bitboards
+    private static final String LEGACY_GAME_JSON = """
+            {"board":{"squares":[
+                [{"pieceColor":"WHITE","type":"ROOK"},{"pieceColor":"WHITE","type":"KNIGHT"},{"pieceColor":"WHITE","type":"BISHOP"},{"pieceColor":"WHITE","type":"QUEEN"},{"pieceColor":"WHITE","type":"KING"},{"pieceColor":"WHITE","type":"BISHOP"},null,{"pieceColor":"WHITE","type":"ROOK"}],
+                [{"pieceColor":"WHITE","type":"PAWN"},{"pieceColor":"WHITE","type":"PAWN"},{"pieceColor":"WHITE","type":"PAWN"},{"pieceColor":"WHITE","type":"PAWN"},null,{"pieceColor":"WHITE","type":"PAWN"},{"pieceColor":"WHITE","type":"PAWN"},{"pieceColor":"WHITE","type":"PAWN"}],
+                [null,null,null,null,null,{"pieceColor":"WHITE","type":"KNIGHT"},null,null],
+                [null,null,null,null,{"pieceColor":"WHITE","type":"PAWN"},null,null,null],
+                [null,null,null,null,{"pieceColor":"BLACK","type":"PAWN"},null,null,null],
+                [null,null,null,null,null,null,null,null],
+                [{"pieceColor":"BLACK","type":"PAWN"},{"pieceColor":"BLACK","type":"PAWN"},{"pieceColor":"BLACK","type":"PAWN"},{"pieceColor":"BLACK","type":"PAWN"},null,{"pieceColor":"BLACK","type":"PAWN"},{"pieceColor":"BLACK","type":"PAWN"},{"pieceColor":"BLACK","type":"PAWN"}],
+                [{"pieceColor":"BLACK","type":"ROOK"},{"pieceColor":"BLACK","type":"KNIGHT"},{"pieceColor":"BLACK","type":"BISHOP"},{"pieceColor":"BLACK","type":"QUEEN"},{"pieceColor":"BLACK","type":"KING"},{"pieceColor":"BLACK","type":"BISHOP"},{"pieceColor":"BLACK","type":"KNIGHT"},{"pieceColor":"BLACK","type":"ROOK"}]
+            ]},
+            "currentTeamTurn":"BLACK","originalState":{},"temporaryState":{}}""";
+
+    private final Gson gson = new Gson();
+
+    @Test
+    public void gamesSavedWithTheOldSquaresArrayStillLoad() {
+        ChessGame game = gson.fromJson(LEGACY_GAME_JSON, ChessGame.class);
+        Assertions.assertEquals("rnbqkbnr/pppp1ppp/8/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R", game.getBoard().toFen());
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, game.getTeamTurn());
+        Assertions.assertEquals(ChessBoard.fromFen("rnbqkbnr/pppp1ppp/8/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R").getZobristKey(),
+                game.getBoard().getZobristKey());
+        Assertions.assertEquals(5, game.validMoves(ChessPosition.of(8, 2)).size() + game.validMoves(ChessPosition.of(8, 7)).size());
+    }
+
+    @Test
+    public void boardsRoundTrip() {
+        ChessBoard board = ChessBoard.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R");
+        String json = gson.toJson(board);
+        Assertions.assertTrue(json.startsWith("{\"pieceSets\":["), json);
+        ChessBoard loaded = gson.fromJson(json, ChessBoard.class);
+        Assertions.assertEquals(board, loaded);
+        Assertions.assertEquals(board.getZobristKey(), loaded.getZobristKey());
+    }
+
+    @Test
+    public void overlappingPiecesAreRejected() {
+        Assertions.assertThrows(JsonParseException.class,
+                () -> gson.fromJson("{\"pieceSets\":[1,1,0,0,0,0,0,0,0,0,0,0]}", ChessBoard.class));
+    }
+}
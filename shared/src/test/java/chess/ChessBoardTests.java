@@ -0,0 +1,25 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+public class ChessBoardTests {
+
+    @ParameterizedTest
+    @CsvSource({"0, 1", "9, 1", "1, 0", "1, 9", "-1, 4"})
+    public void offBoardPositionsAreRejected(int row, int col) {
+        ChessGame game = new ChessGame();
+        ChessBoard board = game.getBoard();
+        ChessPosition position = ChessPosition.of(row, col);
+        Assertions.assertNull(board.getPiece(position));
+        Assertions.assertNull(game.snapshot().getPiece(position));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> board.addPiece(position,
+                ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN)));
+        // Nothing was touched on the way to the error
+        Assertions.assertEquals(ChessBoard.fromFen(Fen.START_POSITION), board);
+        Assertions.assertEquals(ChessBoard.fromFen(Fen.START_POSITION).getZobristKey(), board.getZobristKey());
+        Assertions.assertThrows(InvalidMoveException.class,
+                () -> game.makeMove(new ChessMove(ChessPosition.of(1, 1), position, null)));
+    }
+}
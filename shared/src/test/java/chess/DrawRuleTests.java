@@ -0,0 +1,64 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class DrawRuleTests {
+
+    @Test
+    @DisplayName("Third occurrence of a position is a repetition draw")
+    public void knightShuffleRepeats() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        String[] shuffle = {"g1f3", "g8f6", "f3g1", "f6g8"};
+
+        for (int round = 0; round < 2; round++) {
+            for (String move : shuffle) {
+                Assertions.assertFalse(game.isThreefoldRepetition(), "Repetition claimed too early");
+                game.makeMove(move(move));
+            }
+        }
+        Assertions.assertTrue(game.isThreefoldRepetition(), "Start position seen three times");
+
+        game.undoMove();
+        Assertions.assertFalse(game.isThreefoldRepetition(), "Undoing a move should forget it");
+    }
+
+    @Test
+    @DisplayName("Lost castling rights make an otherwise identical position new")
+    public void castlingRightsBreakRepetition() throws InvalidMoveException {
+        ChessGame game = Fen.parse("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        String[] shuffle = {"e1f1", "e8f8", "f1e1", "f8e8"};
+
+        for (int round = 0; round < 2; round++) {
+            for (String move : shuffle) {
+                game.makeMove(move(move));
+            }
+        }
+        // The kings' first trip cost both sides their rights, so the start only counts once
+        Assertions.assertFalse(game.isThreefoldRepetition());
+        for (String move : shuffle) {
+            game.makeMove(move(move));
+        }
+        Assertions.assertTrue(game.isThreefoldRepetition());
+    }
+
+    @Test
+    @DisplayName("Fifty moves without a capture or pawn move")
+    public void fiftyMoveRule() throws InvalidMoveException {
+        ChessGame game = Fen.parse("4k3/8/8/8/8/8/4P3/R3K3 w - - 99 80");
+        Assertions.assertFalse(game.isFiftyMoveDraw());
+
+        game.makeMove(move("a1a2"));
+        Assertions.assertTrue(game.isFiftyMoveDraw());
+
+        game.undoMove();
+        game.makeMove(move("e2e4"));
+        Assertions.assertFalse(game.isFiftyMoveDraw(), "A pawn move resets the count");
+    }
+
+    private static ChessMove move(String text) {
+        return new ChessMove(ChessPosition.of(text.charAt(1) - '0', text.charAt(0) - 'a' + 1),
+                ChessPosition.of(text.charAt(3) - '0', text.charAt(2) - 'a' + 1), null);
+    }
+}
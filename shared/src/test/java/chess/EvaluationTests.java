@@ -0,0 +1,121 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.SplittableRandom;
+
+public class EvaluationTests {
+
+    @Test
+    public void startPositionIsLevel() {
+        Assertions.assertEquals(0, Evaluation.evaluate(new ChessGame()));
+        Assertions.assertEquals(Evaluation.MAX_PHASE, new ChessGame().getBoard().phase());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            "6k1/5ppp/8/8/8/8/r4PPP/1r4K1 b - - 0 1",
+    })
+    public void mirroredPositionScoresTheSame(String fen) {
+        Assertions.assertEquals(Evaluation.evaluate(Fen.parse(fen)), Evaluation.evaluate(Fen.parse(mirror(fen))));
+    }
+
+    @Test
+    public void incrementalScoresMatchAFreshBoard() {
+        SplittableRandom random = new SplittableRandom(7);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        for (int game = 0; game < 20; game++) {
+            ChessGame chessGame = new ChessGame();
+            int played = 0;
+            for (int ply = 0; ply < 120; ply++) {
+                int count = MoveGenerator.generateLegalMoves(chessGame, moves);
+                if (count == 0) {
+                    break;
+                }
+                chessGame.doMove(moves[random.nextInt(count)]);
+                played++;
+                ChessBoard fresh = ChessBoard.fromFen(chessGame.getBoard().toFen());
+                Assertions.assertEquals(fresh.pieceSquareScore(), chessGame.getBoard().pieceSquareScore());
+                Assertions.assertEquals(fresh.phase(), chessGame.getBoard().phase());
+            }
+            for (; played > 0; played--) {
+                chessGame.undoMove();
+            }
+            Assertions.assertEquals(new ChessGame().getBoard().pieceSquareScore(), chessGame.getBoard().pieceSquareScore());
+        }
+    }
+
+    @Test
+    public void pawnStructureTerms() {
+        // Doubled and isolated pawns on the a-file against a healthy pair
+        int weak = Evaluation.pawnStructure(Bitboards.bit(8) | Bitboards.bit(16), Bitboards.bit(49) | Bitboards.bit(50));
+        Assertions.assertTrue(Evaluation.middlegame(weak) < 0);
+        Assertions.assertTrue(Evaluation.endgame(weak) < 0);
+
+        // A passed pawn on the seventh is worth more than one on the third
+        int far = Evaluation.pawnStructure(Bitboards.bit(52), 0);
+        int near = Evaluation.pawnStructure(Bitboards.bit(20), 0);
+        Assertions.assertTrue(Evaluation.endgame(far) > Evaluation.endgame(near));
+        // An enemy pawn ahead on the e-file stops both the e- and f-pawn being passed
+        int free = Evaluation.pawnStructure(Bitboards.bit(20) | Bitboards.bit(21), 0);
+        int blocked = Evaluation.pawnStructure(Bitboards.bit(20) | Bitboards.bit(21), Bitboards.bit(44));
+        Assertions.assertTrue(Evaluation.endgame(blocked) < Evaluation.endgame(free));
+    }
+
+    @Test
+    public void kingPrefersShelterWithQueensOnAndTheCentreWithout() {
+        // Same king moves, with and without queens on the board
+        ChessGame sheltered = Fen.parse("r1bq1rk1/pppp1ppp/8/8/8/8/PPPP1PPP/R1BQ1RK1 w - - 0 1");
+        ChessGame exposed = Fen.parse("r1bq1rk1/pppp1ppp/8/8/8/4K3/PPPP1PPP/R1BQ1R2 w - - 0 1");
+        Assertions.assertTrue(Evaluation.evaluate(sheltered) > Evaluation.evaluate(exposed));
+
+        ChessGame cornered = Fen.parse("6k1/8/8/8/8/8/8/K7 w - - 0 1");
+        ChessGame central = Fen.parse("6k1/8/8/8/3K4/8/8/8 w - - 0 1");
+        Assertions.assertTrue(Evaluation.evaluate(central) > Evaluation.evaluate(cornered));
+    }
+
+    @Test
+    public void packedScoresKeepTheirSigns() {
+        int score = Evaluation.score(-37, 52) + Evaluation.score(12, -80);
+        Assertions.assertEquals(-25, Evaluation.middlegame(score));
+        Assertions.assertEquals(-28, Evaluation.endgame(score));
+    }
+
+    // The same position with the colours swapped and the board turned round
+    private static String mirror(String fen) {
+        String[] fields = fen.split(" ");
+        String[] rows = fields[0].split("/");
+        StringBuilder placement = new StringBuilder();
+        for (int i = rows.length - 1; i >= 0; i--) {
+            placement.append(swapCase(rows[i])).append(i > 0 ? "/" : "");
+        }
+        String castling = fields[2].equals("-") ? "-" : sortCastling(swapCase(fields[2]));
+        String enPassant = fields[3].equals("-") ? "-"
+                : fields[3].charAt(0) + String.valueOf((char) ('1' + '8' - fields[3].charAt(1)));
+        return placement + (fields[1].equals("w") ? " b " : " w ") + castling + " " + enPassant + " " + fields[4] + " " + fields[5];
+    }
+
+    private static String swapCase(String text) {
+        StringBuilder swapped = new StringBuilder();
+        for (char c : text.toCharArray()) {
+            swapped.append(Character.isUpperCase(c) ? Character.toLowerCase(c) : Character.toUpperCase(c));
+        }
+        return swapped.toString();
+    }
+
+    private static String sortCastling(String rights) {
+        StringBuilder sorted = new StringBuilder();
+        for (char c : "KQkq".toCharArray()) {
+            if (rights.indexOf(c) >= 0) {
+                sorted.append(c);
+            }
+        }
+        return sorted.toString();
+    }
+}
@@ -0,0 +1,67 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import websocket.messages.ServerMessage;
+
+import java.util.Arrays;
+
+public class GameCodecTests {
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+            "rnbqkbnr/pppp1ppp/8/8/3pP3/5N2/PPP2PPP/RNBQKB1R b KQkq e3 0 3",
+            "8/8/8/8/8/8/8/4K2k b - - 37 112",
+    })
+    @DisplayName("Encoded games decode to the same position")
+    public void roundTrip(String fen) {
+        ChessGame game = ChessGame.fromFen(fen);
+        byte[] bytes = GameCodec.encode(game);
+
+        Assertions.assertEquals(game, GameCodec.decode(bytes));
+        Assertions.assertEquals(fen, GameCodec.decode(bytes).toFen());
+        Assertions.assertEquals(game, GameCodec.decodeBase64(GameCodec.encodeBase64(game)));
+    }
+
+    @Test
+    @DisplayName("A full board fits in 31 bytes")
+    public void startPositionSize() {
+        Assertions.assertEquals(31, GameCodec.encode(new ChessGame()).length);
+    }
+
+    @Test
+    @DisplayName("Corrupt input is rejected")
+    public void corruptInput() {
+        byte[] bytes = GameCodec.encode(new ChessGame());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> GameCodec.decode(new byte[3]));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> GameCodec.decode(Arrays.copyOf(bytes, bytes.length - 1)));
+
+        bytes[9] = (byte) 0xF0;
+        Assertions.assertThrows(IllegalArgumentException.class, () -> GameCodec.decode(bytes));
+    }
+
+    @Test
+    @DisplayName("LOAD_GAME messages carry the encoded game through Gson")
+    public void loadGameMessageRoundTrip() {
+        ChessGame game = ChessGame.fromFen("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3");
+        Gson gson = new Gson();
+        String json = gson.toJson(new ServerMessage.LoadGameMessage(game));
+
+        ServerMessage.LoadGameMessage received = gson.fromJson(json, ServerMessage.LoadGameMessage.class);
+        Assertions.assertEquals(ServerMessage.ServerMessageType.LOAD_GAME, received.getServerMessageType());
+        Assertions.assertEquals(GameCodec.encodeBase64(game), received.getGame());
+        Assertions.assertEquals(game, received.decodeGame());
+
+        ServerMessage.LoadGameMessage empty = gson.fromJson("{\"serverMessageType\":\"LOAD_GAME\"}",
+                ServerMessage.LoadGameMessage.class);
+        Assertions.assertThrows(IllegalArgumentException.class, empty::decodeGame);
+    }
+}
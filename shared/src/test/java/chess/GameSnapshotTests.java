@@ -0,0 +1,126 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class GameSnapshotTests {
+
+    @Test
+    public void snapshotsDontChangeWhenTheGameMovesOn() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        GameSnapshot start = game.snapshot();
+        game.makeMove(new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+        GameSnapshot afterE4 = game.snapshot();
+        game.makeMove(new ChessMove(ChessPosition.of(7, 3), ChessPosition.of(5, 3), null));
+
+        Assertions.assertEquals(Fen.START_POSITION, start.toFen());
+        Assertions.assertEquals(0, start.moveCount());
+        Assertions.assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1", afterE4.toFen());
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, afterE4.getTeamTurn());
+        Assertions.assertNull(afterE4.getPiece(ChessPosition.of(2, 5)));
+        Assertions.assertEquals(ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN),
+                afterE4.getPiece(ChessPosition.of(4, 5)));
+        Assertions.assertEquals(1, afterE4.moveCount());
+
+        GameSnapshot latest = game.snapshot();
+        Assertions.assertEquals(game.toFen(), latest.toFen());
+        Assertions.assertEquals(game.getZobristKey(), latest.getZobristKey());
+        Assertions.assertArrayEquals(game.getMoveHistory(), latest.getMoveHistory());
+        Assertions.assertEquals(game.getBoard(), latest.getBoard());
+    }
+
+    @Test
+    public void gamesRebuiltFromSnapshotsKeepTheirHistory() throws InvalidMoveException {
+        ChessGame game = Fen.parse("4k3/8/8/8/8/8/8/R3K3 w - - 0 1");
+        String[][] moves = {{"a1", "a2"}, {"e8", "d8"}, {"a2", "a1"}, {"d8", "e8"}};
+        for (String[] move : moves) {
+            game.makeMove(new ChessMove(position(move[0]), position(move[1]), null));
+        }
+        ChessGame copy = game.snapshot().toGame();
+        Assertions.assertEquals(game, copy);
+        Assertions.assertArrayEquals(game.getMoveHistory(), copy.getMoveHistory());
+        Assertions.assertEquals("4k3/8/8/8/8/8/8/R3K3 w - - 0 1", copy.getStartFen());
+        // The position after the moves has come up twice, which only the history shows
+        Assertions.assertTrue(copy.isRepeated());
+    }
+
+    @Test
+    public void undoingAndResettingArePublished() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(ChessPosition.of(1, 7), ChessPosition.of(3, 6), null));
+        game.makeMove(new ChessMove(ChessPosition.of(8, 7), ChessPosition.of(6, 6), null));
+        game.undoMove();
+        Assertions.assertEquals(1, game.snapshot().moveCount());
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, game.snapshot().getTeamTurn());
+        game.makeMove(new ChessMove(ChessPosition.of(7, 4), ChessPosition.of(5, 4), null));
+        Assertions.assertArrayEquals(game.getMoveHistory(), game.snapshot().getMoveHistory());
+
+        game.setBoard(ChessBoard.fromFen("4k3/8/8/8/8/8/8/4K3"));
+        Assertions.assertEquals(0, game.snapshot().moveCount());
+        Assertions.assertEquals("4k3/8/8/8/8/8/8/4K3 w - - 0 1", game.snapshot().toFen());
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, game.snapshot().getTeamTurn());
+    }
+
+    @Test
+    public void loadedGamesArePublishedBeforeAnyoneReadsThem() throws InvalidMoveException, InterruptedException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(ChessPosition.of(2, 4), ChessPosition.of(4, 4), null));
+        game.makeMove(new ChessMove(ChessPosition.of(8, 7), ChessPosition.of(6, 6), null));
+        Gson gson = new Gson();
+        ChessGame loaded = gson.fromJson(gson.toJson(game), ChessGame.class);
+
+        // Read first from another thread, which must find the loaded position rather than build it
+        AtomicReference<GameSnapshot> seen = new AtomicReference<>();
+        Thread reader = new Thread(() -> seen.set(loaded.snapshot()));
+        reader.start();
+        reader.join();
+        Assertions.assertEquals(game.toFen(), seen.get().toFen());
+        Assertions.assertArrayEquals(game.getMoveHistory(), seen.get().getMoveHistory());
+        Assertions.assertSame(seen.get(), loaded.snapshot());
+    }
+
+    @Test
+    public void readersAlwaysSeeAConsistentPosition() throws InterruptedException {
+        ChessGame game = new ChessGame();
+        game.snapshot();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> problem = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (!done.get() && problem.get() == null) {
+                GameSnapshot snapshot = game.snapshot();
+                ChessGame rebuilt = snapshot.toGame();
+                if (rebuilt.getZobristKey() != snapshot.getZobristKey()
+                        || !Arrays.equals(rebuilt.getMoveHistory(), snapshot.getMoveHistory())) {
+                    problem.set("Inconsistent snapshot " + snapshot.toFen());
+                }
+            }
+        });
+        reader.start();
+
+        // Knights back and forth, so the game can go on as long as it likes
+        int[][] shuffle = {{1, 7, 3, 6}, {8, 7, 6, 6}, {3, 6, 1, 7}, {6, 6, 8, 7}};
+        try {
+            for (int i = 0; i < 2000 && problem.get() == null; i++) {
+                int[] move = shuffle[i % shuffle.length];
+                game.makeMove(new ChessMove(ChessPosition.of(move[0], move[1]), ChessPosition.of(move[2], move[3]), null));
+            }
+        } catch (InvalidMoveException e) {
+            Assertions.fail(e);
+        } finally {
+            done.set(true);
+            reader.join();
+        }
+        Assertions.assertNull(problem.get());
+        Assertions.assertEquals(2000, game.snapshot().moveCount());
+    }
+
+    private static ChessPosition position(String square) {
+        return ChessPosition.of(square.charAt(1) - '0', square.charAt(0) - 'a' + 1);
+    }
+}
@@ -0,0 +1,29 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+public class GameStatusTests {
+
+    @ParameterizedTest(name = "{0}")
+    @CsvSource(delimiter = ';', value = {
+            "start position; rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1; NORMAL",
+            "fool's mate; rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3; CHECKMATE",
+            "check, king can step aside; rnbqkbnr/ppppp1pp/8/5p1Q/4P3/8/PPPP1PPP/RNB1KBNR b KQkq - 1 2; CHECK",
+            "check, only a block; 4k3/8/8/8/8/5n2/PP1r1PPP/RN1K3R w - - 0 1; CHECK",
+            "double check mate; 3qkb2/3p1p2/3N4/8/8/8/8/4R1K1 b - - 0 1; CHECKMATE",
+            "king boxed in; 7k/5Q2/6K1/8/8/8/8/8 b - - 0 1; STALEMATE",
+            "defended rook next to the king; 8/8/8/8/8/2k5/1r6/K7 w - - 0 1; STALEMATE",
+            "only other piece is pinned; b3k3/8/8/8/8/8/4n1R1/5n1K w - - 0 1; STALEMATE",
+    })
+    public void statusMatchesPosition(String name, String fen, ChessGame.GameStatus expected) {
+        ChessGame game = Fen.parse(fen);
+        ChessGame.TeamColor team = game.getTeamTurn();
+        Assertions.assertEquals(expected, game.getGameStatus(team), name);
+        Assertions.assertEquals(expected == ChessGame.GameStatus.CHECKMATE, game.isInCheckmate(team));
+        Assertions.assertEquals(expected == ChessGame.GameStatus.STALEMATE, game.isInStalemate(team));
+        Assertions.assertEquals(expected == ChessGame.GameStatus.CHECK || expected == ChessGame.GameStatus.CHECKMATE,
+                game.isInCheck(team));
+    }
+}
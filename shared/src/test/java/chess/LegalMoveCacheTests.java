@@ -0,0 +1,58 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+public class LegalMoveCacheTests {
+
+    @Test
+    public void repeatedQueriesAreServedFromTheCache() throws InvalidMoveException {
+        ChessGame game = Fen.parse("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        LegalMoveCache cache = game.legalMoveCache();
+        Set<ChessMove> all = new HashSet<>();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = game.getBoard().getPiece(ChessPosition.of(row, col));
+                if (piece != null && piece.getTeamColor() == ChessGame.TeamColor.WHITE) {
+                    all.addAll(game.validMoves(ChessPosition.of(row, col)));
+                }
+            }
+        }
+        Assertions.assertEquals(48, all.size());
+        Assertions.assertEquals(1, cache.misses());
+
+        ChessMove castle = new ChessMove(ChessPosition.of(1, 5), ChessPosition.of(1, 7), null);
+        Assertions.assertTrue(game.validMoves(ChessPosition.of(1, 5)).contains(castle));
+        game.makeMove(castle);
+        Assertions.assertEquals(1, cache.misses());
+        Assertions.assertTrue(cache.hits() > 0);
+    }
+
+    @Test
+    public void movesAndEditsAreNotServedStale() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        Assertions.assertEquals(2, game.validMoves(ChessPosition.of(2, 5)).size());
+        game.makeMove(new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+        Assertions.assertNull(game.validMoves(ChessPosition.of(2, 5)));
+        Assertions.assertEquals(5, game.validMoves(ChessPosition.of(1, 6)).size());
+
+        // A queen dropped on e2 blocks the bishop, which changes the key
+        game.getBoard().addPiece(ChessPosition.of(2, 5), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+        Assertions.assertEquals(0, game.validMoves(ChessPosition.of(1, 6)).size());
+    }
+
+    @Test
+    public void bothTeamsAreCachedSeparately() {
+        ChessGame game = new ChessGame();
+        Collection<ChessMove> white = game.validMoves(ChessPosition.of(1, 2));
+        Collection<ChessMove> black = game.validMoves(ChessPosition.of(8, 2));
+        Assertions.assertEquals(2, white.size());
+        Assertions.assertEquals(2, black.size());
+        Assertions.assertNotEquals(white, black);
+        Assertions.assertEquals(white, game.validMoves(ChessPosition.of(1, 2)));
+    }
+}
@@ -0,0 +1,65 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ParallelSearchTests {
+    private static final String KIWIPETE = Perft.REFERENCE_POSITIONS.get(1).fen();
+
+    @Test
+    public void oneThreadIsTheSameAsSearch() {
+        ChessGame game = Fen.parse(KIWIPETE);
+        Search.Result expected = new Search(new TranspositionTable(4)).search(game, Search.Limits.ofDepth(5));
+        try (ParallelSearch search = new ParallelSearch(new TranspositionTable(4), 3)) {
+            Search.Result result = search.search(game, Search.Limits.ofDepth(5), 1);
+
+            Assertions.assertEquals(expected.move(), result.move());
+            Assertions.assertEquals(expected.score(), result.score());
+            Assertions.assertEquals(expected.nodes(), result.nodes());
+        }
+    }
+
+    @Test
+    public void helpersAgreeOnAForcedMate() {
+        try (ParallelSearch search = new ParallelSearch(new TranspositionTable(4), 3)) {
+            Search.Result result = search.search(Fen.parse("6rk/6pp/7N/8/8/8/8/6K1 w - - 0 1"), Search.Limits.ofDepth(4), 4);
+
+            Assertions.assertEquals("h6f7", PackedMove.toString(result.move()));
+            Assertions.assertEquals(Search.MATE - 1, result.score());
+        }
+    }
+
+    @Test
+    public void helpersAreHandedBack() {
+        try (ParallelSearch search = new ParallelSearch(new TranspositionTable(4), 2)) {
+            for (int i = 0; i < 5; i++) {
+                Search.Result result = search.search(Fen.parse(KIWIPETE), Search.Limits.ofDepth(4), 8);
+                Assertions.assertNotEquals(0, result.move());
+            }
+            Assertions.assertEquals(2, search.idleHelpers());
+        }
+    }
+
+    @Test
+    public void timeLimitStopsHelpersToo() {
+        try (ParallelSearch search = new ParallelSearch(new TranspositionTable(4), 3)) {
+            long start = System.nanoTime();
+            Search.Result result = search.search(Fen.parse(KIWIPETE), Search.Limits.ofMillis(100), 4);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+
+            Assertions.assertNotEquals(0, result.move());
+            Assertions.assertTrue(millis < 1_000, "took " + millis + " ms");
+            Assertions.assertEquals(3, search.idleHelpers());
+        }
+    }
+
+    @Test
+    public void closedSearchRunsAlone() {
+        ParallelSearch search = new ParallelSearch(new TranspositionTable(4), 2);
+        search.close();
+        Search.Result result = search.search(new ChessGame(), Search.Limits.ofDepth(3), 3);
+
+        Assertions.assertNotEquals(0, result.move());
+        Assertions.assertEquals(2, search.idleHelpers());
+    }
+}
@@ -0,0 +1,64 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+public class PawnHashTableTests {
+
+    @Test
+    public void pawnKeyFollowsOnlyThePawns() {
+        SplittableRandom random = new SplittableRandom(11);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        ChessGame game = new ChessGame();
+        for (int ply = 0; ply < 200; ply++) {
+            int count = MoveGenerator.generateLegalMoves(game, moves);
+            if (count == 0) {
+                break;
+            }
+            int move = moves[random.nextInt(count)];
+            long pawnsBefore = game.getBoard().pieces(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN)
+                    | game.getBoard().pieces(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN);
+            long keyBefore = game.getBoard().pawnKey();
+            game.doMove(move);
+            long pawnsAfter = game.getBoard().pieces(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN)
+                    | game.getBoard().pieces(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN);
+
+            Assertions.assertEquals(ChessBoard.fromFen(game.getBoard().toFen()).pawnKey(), game.getBoard().pawnKey());
+            Assertions.assertEquals(pawnsBefore == pawnsAfter, keyBefore == game.getBoard().pawnKey());
+        }
+    }
+
+    @Test
+    public void cachedScoresMatchComputedOnes() {
+        PawnHashTable table = new PawnHashTable(1);
+        for (Perft.Position position : Perft.REFERENCE_POSITIONS) {
+            ChessGame game = Fen.parse(position.fen());
+            int expected = Evaluation.evaluate(game);
+            Assertions.assertEquals(expected, Evaluation.evaluate(game, table), position.name());
+            Assertions.assertEquals(expected, Evaluation.evaluate(game, table), position.name());
+        }
+        Assertions.assertEquals(Perft.REFERENCE_POSITIONS.size(), table.misses());
+        Assertions.assertEquals(Perft.REFERENCE_POSITIONS.size(), table.hits());
+        Assertions.assertEquals(0.5, table.hitRate());
+
+        table.resetStatistics();
+        Assertions.assertEquals(0, table.hitRate());
+    }
+
+    @Test
+    public void searchMostlyHits() {
+        PawnHashTable pawnTable = new PawnHashTable(64);
+        new Search(new TranspositionTable(4), pawnTable)
+                .search(Fen.parse(Perft.REFERENCE_POSITIONS.get(1).fen()), Search.Limits.ofDepth(5));
+
+        Assertions.assertTrue(pawnTable.hitRate() > 0.8, "hit rate " + pawnTable.hitRate());
+    }
+
+    @Test
+    public void sizeIsAPowerOfTwoWithinTheBudget() {
+        Assertions.assertEquals(4096, new PawnHashTable(64).capacity());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new PawnHashTable(0));
+    }
+}
@@ -0,0 +1,63 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+/**
+ * Checks move generation against published perft counts. Depths are kept small
+ * enough to run with the rest of the suite; use Perft.main to go deeper.
+ */
+public class PerftTests {
+
+    @ParameterizedTest(name = "{0} depth {1}")
+    @CsvSource({
+            "start, 1",
+            "start, 2",
+            "start, 3",
+            "start, 4",
+            "kiwipete, 1",
+            "kiwipete, 2",
+            "kiwipete, 3",
+            "position 3, 1",
+            "position 3, 2",
+            "position 3, 3",
+            "position 3, 4",
+            "position 4, 1",
+            "position 4, 2",
+            "position 4, 3",
+            "position 5, 1",
+            "position 5, 2",
+            "position 5, 3",
+            "position 6, 1",
+            "position 6, 2",
+            "position 6, 3",
+    })
+    @DisplayName("Reference position node counts")
+    public void referenceCounts(String name, int depth) {
+        Perft.Position position = Perft.REFERENCE_POSITIONS.stream()
+                .filter(p -> p.name().equals(name))
+                .findFirst()
+                .orElseThrow();
+        ChessGame game = Fen.parse(position.fen());
+
+        Assertions.assertEquals(position.nodes()[depth - 1], Perft.perft(game, depth),
+                "Wrong node count for " + name + " at depth " + depth);
+        Assertions.assertEquals(Fen.parse(position.fen()), game, "perft did not leave the position as it found it");
+    }
+
+    @Test
+    @DisplayName("Divide adds up to perft")
+    public void divideMatchesPerft() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long total = Perft.divide(new ChessGame(), 3, new PrintStream(output));
+
+        Assertions.assertEquals(8_902L, total);
+        Assertions.assertTrue(output.toString().contains("e2e4: 600"), "Divide output missing e2e4 line");
+    }
+}
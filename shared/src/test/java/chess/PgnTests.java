@@ -0,0 +1,124 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class PgnTests {
+    // Morphy's Opera Game, Paris 1858
+    private static final String OPERA_GAME = """
+            [Event "Paris"]
+            [Site "Paris FRA"]
+            [Date "1858.??.??"]
+            [Round "?"]
+            [White "Paul Morphy"]
+            [Black "Duke Karl / Count Isouard"]
+            [Result "1-0"]
+
+            1. e4 e5 2. Nf3 d6 3. d4 Bg4 {This is a weak move already.--Fischer} 4. dxe5
+            Bxf3 5. Qxf3 dxe5 6. Bc4 Nf6 7. Qb3 Qe7 8. Nc3 c6 9. Bg5 {Black is in what's
+            like a zugzwang position here.} b5 10. Nxb5 cxb5 11. Bxb5+ Nbd7 12. O-O-O Rd8
+            13. Rxd7 Rxd7 14. Rd1 Qe6 15. Bxd7+ Nxd7 16. Qb8+ Nxb8 17. Rd8# 1-0
+            """;
+
+    @Test
+    @DisplayName("A whole game plays out and exports back to the same movetext")
+    public void operaGameRoundTrip() {
+        ChessGame game = Pgn.parse(OPERA_GAME);
+        Assertions.assertEquals(33, game.getMoveHistory().length);
+        Assertions.assertTrue(game.isInCheckmate(ChessGame.TeamColor.BLACK));
+
+        String exported = Pgn.export(game, Map.of("Event", "Paris", "White", "Paul Morphy"));
+        Assertions.assertTrue(exported.startsWith("[Event \"Paris\"]\n[Site \"?\"]"), exported);
+        Assertions.assertTrue(exported.contains("[Result \"1-0\"]"), exported);
+        Assertions.assertTrue(exported.contains("12. O-O-O Rd8 13. Rxd7 Rxd7"), exported);
+        Assertions.assertTrue(exported.strip().endsWith("17. Rd8# 1-0"), exported);
+        for (String line : exported.split("\n")) {
+            Assertions.assertTrue(line.length() <= 80, "Line over 80 columns: " + line);
+        }
+
+        ChessGame replayed = Pgn.parse(exported);
+        Assertions.assertArrayEquals(game.getMoveHistory(), replayed.getMoveHistory());
+        Assertions.assertEquals(game, replayed);
+    }
+
+    @Test
+    @DisplayName("SAN covers disambiguation, en passant and promotion")
+    public void sanForms() {
+        ChessGame game = ChessGame.fromFen("1k6/4P3/8/3pP3/8/6K1/8/R6R w - d6 0 1");
+        Assertions.assertEquals("exd6", San.format(game, San.parse(game, "exd6")));
+        Assertions.assertEquals("e8=Q+", San.format(game, San.parse(game, "e8Q")));
+        Assertions.assertEquals("Rad1", San.format(game, San.parse(game, "Rad1")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> San.parse(game, "Rd1"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> San.parse(game, "Nf3"));
+
+        ChessGame castling = ChessGame.fromFen("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        Assertions.assertEquals("O-O", San.format(castling, San.parse(castling, "0-0")));
+        Assertions.assertEquals("O-O-O", San.format(castling, San.parse(castling, "O-O-O")));
+    }
+
+    @Test
+    @DisplayName("Games starting from a FEN carry SetUp and FEN tags")
+    public void setUpPosition() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen("4k3/8/8/8/8/8/4P3/4K3 b - - 0 40");
+        game.makeMove(new ChessMove(ChessPosition.of(8, 5), ChessPosition.of(8, 4), null));
+        game.makeMove(new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+
+        String exported = Pgn.export(game, Map.of());
+        Assertions.assertTrue(exported.contains("[FEN \"4k3/8/8/8/8/8/4P3/4K3 b - - 0 40\"]"), exported);
+        Assertions.assertTrue(exported.contains("40... Kd8 41. e4 *"), exported);
+        Assertions.assertEquals(game, Pgn.parse(exported));
+    }
+
+    @Test
+    @DisplayName("The reader splits a stream into games")
+    public void readerSplitsGames() throws IOException {
+        String pgn = OPERA_GAME + "\n[Event \"Short\"]\n\n1. f3 e5 2. g4 Qh4# 0-1\n\n1. e4 (1. d4 d5) e5 *\n";
+        List<PgnReader.Game> games = new ArrayList<>();
+        try (PgnReader reader = new PgnReader(new StringReader(pgn))) {
+            for (PgnReader.Game game = reader.next(); game != null; game = reader.next()) {
+                games.add(game);
+            }
+        }
+        Assertions.assertEquals(3, games.size());
+        Assertions.assertEquals("Short", games.get(1).tags().get("Event"));
+        Assertions.assertTrue(games.get(1).play().isInCheckmate(ChessGame.TeamColor.WHITE));
+        Assertions.assertEquals(2, games.get(2).play().getMoveHistory().length, "Variations are skipped");
+    }
+
+    @Test
+    @DisplayName("Parallel import replays every game and skips bad ones")
+    public void parallelImport() throws Exception {
+        StringBuilder pgn = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            pgn.append(i % 50 == 0 ? "[Event \"Bad\"]\n\n1. e5 *\n\n" : OPERA_GAME + "\n");
+        }
+        List<PgnImporter.ImportedGame> sunk = Collections.synchronizedList(new ArrayList<>());
+        PgnImporter.Result result = PgnImporter.importGames(new StringReader(pgn.toString()), 4, 16, sunk::addAll);
+
+        Assertions.assertEquals(196, result.imported());
+        Assertions.assertEquals(4, result.rejected());
+        Assertions.assertEquals(196, sunk.size());
+        Assertions.assertTrue(sunk.stream().allMatch(g -> g.game().isInCheckmate(ChessGame.TeamColor.BLACK)));
+    }
+
+    @Test
+    @DisplayName("Import rejects thread counts and batch sizes below one")
+    public void importSettingsAreChecked() {
+        List<PgnImporter.ImportedGame> sunk = new ArrayList<>();
+        IllegalArgumentException noThreads = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> PgnImporter.importGames(new StringReader(OPERA_GAME), 0, 16, sunk::addAll));
+        Assertions.assertTrue(noThreads.getMessage().contains("thread"));
+        IllegalArgumentException emptyBatches = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> PgnImporter.importGames(new StringReader(OPERA_GAME), 2, 0, sunk::addAll));
+        Assertions.assertTrue(emptyBatches.getMessage().contains("Batches"));
+        Assertions.assertTrue(sunk.isEmpty());
+    }
+}
@@ -0,0 +1,150 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+public class PolyglotBookTests {
+    private static final long[] KEYS = new SplittableRandom(2024).longs(PolyglotBook.KEY_COUNT).toArray();
+
+    @TempDir
+    Path directory;
+
+    private record Entry(long key, int move, int weight) {
+    }
+
+    @Test
+    public void weightedPickFollowsTheWeights() throws IOException {
+        ChessGame start = new ChessGame();
+        Path file = writeBook(List.of(
+                new Entry(PolyglotBook.key(start, KEYS), polyglotMove("e2", "e4"), 3),
+                new Entry(PolyglotBook.key(start, KEYS), polyglotMove("d2", "d4"), 1)));
+
+        try (PolyglotBook book = PolyglotBook.open(file, KEYS)) {
+            Assertions.assertEquals(2, book.moves(start).size());
+            SplittableRandom random = new SplittableRandom(1);
+            int e4 = 0;
+            for (int i = 0; i < 4000; i++) {
+                ChessMove move = book.pickMove(start, random);
+                if (move.getEndPosition().equals(ChessPosition.of(4, 5))) {
+                    e4++;
+                }
+            }
+            Assertions.assertTrue(e4 > 2800 && e4 < 3200, "e4 picked " + e4 + " times");
+        }
+    }
+
+    @Test
+    public void findsEntriesAmongManyOthers() throws IOException {
+        ChessGame game = Fen.parse("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        List<Entry> entries = new ArrayList<>();
+        SplittableRandom random = new SplittableRandom(5);
+        for (int i = 0; i < 10_000; i++) {
+            entries.add(new Entry(random.nextLong(), polyglotMove("a2", "a3"), 1));
+        }
+        long key = PolyglotBook.key(game, KEYS);
+        // Castling is stored as the king taking its own rook
+        entries.add(new Entry(key, polyglotMove("e1", "h1"), 5));
+        // Not legal here, so it must be dropped
+        entries.add(new Entry(key, polyglotMove("e1", "e3"), 5));
+
+        try (PolyglotBook book = PolyglotBook.open(writeBook(entries), KEYS)) {
+            Assertions.assertEquals(10_002, book.size());
+            List<PolyglotBook.BookMove> moves = book.moves(game);
+            Assertions.assertEquals(1, moves.size());
+            Assertions.assertEquals(new ChessMove(ChessPosition.of(1, 5), ChessPosition.of(1, 7), null), moves.get(0).move());
+            Assertions.assertNull(book.pickMove(new ChessGame(), random));
+        }
+    }
+
+    @Test
+    public void keyCoversTurnCastlingAndEnPassant() {
+        long base = PolyglotBook.key(Fen.parse("4k3/8/8/8/3pP3/8/8/R3K3 b Q e3 0 1"), KEYS);
+        Assertions.assertNotEquals(base, PolyglotBook.key(Fen.parse("4k3/8/8/8/3pP3/8/8/R3K3 b - e3 0 1"), KEYS));
+        Assertions.assertNotEquals(base, PolyglotBook.key(Fen.parse("4k3/8/8/8/3pP3/8/8/R3K3 b Q - 0 1"), KEYS));
+        Assertions.assertNotEquals(base, PolyglotBook.key(Fen.parse("4k3/8/8/8/3pP3/8/8/R3K3 w Q - 0 1"), KEYS));
+        // The last key is for white to move
+        Assertions.assertEquals(PolyglotBook.key(Fen.parse("4k3/8/8/8/3pP3/8/8/R3K3 b Q - 0 1"), KEYS) ^ KEYS[PolyglotBook.KEY_COUNT - 1],
+                PolyglotBook.key(Fen.parse("4k3/8/8/8/3pP3/8/8/R3K3 w Q - 0 1"), KEYS));
+    }
+
+    // The reference keys from Polyglot's book format description
+    @ParameterizedTest
+    @CsvSource({
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1, 463b96181691fc9c",
+            "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1, 823c9b50fd114196",
+            "rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2, 0756b94461c50fb0",
+            "rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR b KQkq - 0 2, 662fafb965db29d4",
+            "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3, 22a48b5a8e47ff78",
+            "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR b kq - 0 3, 652a607ca3f242c1",
+            "rnbq1bnr/ppp1pkpp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR w - - 0 4, 00fdd303c946bdd9",
+            "rnbqkbnr/p1pppppp/8/8/PpP4P/8/1P1PPPP1/RNBQKBNR b KQkq c3 0 3, 3c8123ea7b067637",
+            "rnbqkbnr/p1pppppp/8/8/P6P/R1p5/1P1PPPP1/1NBQKBNR b Kkq - 0 4, 5c3f9b829b279560"
+    })
+    public void standardKeysMatchTheReference(String fen, String key) {
+        Assertions.assertEquals(Long.parseUnsignedLong(key, 16), PolyglotBook.key(Fen.parse(fen)));
+    }
+
+    @Test
+    public void standardBooksOpenWithoutAKeyTable() throws IOException, InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+        Path file = writeBook(List.of(new Entry(0x823c9b50fd114196L, polyglotMove("c7", "c5"), 1)));
+
+        try (PolyglotBook book = PolyglotBook.open(file)) {
+            Assertions.assertEquals(List.of(new PolyglotBook.BookMove(
+                    new ChessMove(ChessPosition.of(7, 3), ChessPosition.of(5, 3), null), 1)), book.moves(game));
+        }
+    }
+
+    @Test
+    public void keyTableRoundTrips() throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(PolyglotBook.KEY_COUNT * Long.BYTES);
+        bytes.asLongBuffer().put(KEYS);
+        Path file = directory.resolve("keys.bin");
+        Files.write(file, bytes.array());
+        Assertions.assertArrayEquals(KEYS, PolyglotBook.readKeys(file));
+
+        Files.write(file, new byte[16]);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PolyglotBook.readKeys(file));
+    }
+
+    @Test
+    public void rejectsFilesThatAreNotBooks() throws IOException {
+        Path file = directory.resolve("broken.bin");
+        Files.write(file, new byte[17]);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PolyglotBook.open(file, KEYS));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PolyglotBook.open(file, new long[3]));
+    }
+
+    private Path writeBook(List<Entry> entries) throws IOException {
+        List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparing(Entry::key, Long::compareUnsigned));
+        ByteBuffer bytes = ByteBuffer.allocate(sorted.size() * 16);
+        for (Entry entry : sorted) {
+            bytes.putLong(entry.key()).putShort((short) entry.move()).putShort((short) entry.weight()).putInt(0);
+        }
+        Path file = directory.resolve("book.bin");
+        Files.write(file, bytes.array());
+        return file;
+    }
+
+    private static int polyglotMove(String from, String to) {
+        return (square(from) << 6) | square(to);
+    }
+
+    private static int square(String name) {
+        return (name.charAt(1) - '1') * 8 + (name.charAt(0) - 'a');
+    }
+}
@@ -0,0 +1,76 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+public class SearchTests {
+
+    @ParameterizedTest(name = "{0}")
+    @CsvSource(delimiter = ';', value = {
+            "back rank mate; 6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1; a1a8",
+            "smothered mate; 6rk/6pp/7N/8/8/8/8/6K1 w - - 0 1; h6f7",
+            "take the hanging queen; 4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1; d2d5",
+            "promote rather than take a pawn; 4k3/1P6/8/8/8/8/6p1/4K3 w - - 0 1; b7b8q",
+            "already mated; 6k1/5ppp/8/8/8/8/r4PPP/1r4K1 w - - 0 1; NONE",
+    })
+    public void findsTheBestMove(String name, String fen, String expected) {
+        Search.Result result = new Search().search(Fen.parse(fen), Search.Limits.ofDepth(4));
+        String move = result.move() == 0 ? "NONE" : PackedMove.toString(result.move());
+        Assertions.assertEquals(expected, move, name);
+    }
+
+    @Test
+    public void mateScoreCountsPlies() {
+        Search.Result result = new Search().search(Fen.parse("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1"), Search.Limits.ofDepth(4));
+        Assertions.assertTrue(result.isMate());
+        Assertions.assertEquals(Search.MATE - 1, result.score());
+    }
+
+    @Test
+    public void noMoveWhenMatedOrStalemated() {
+        Search.Result mated = new Search().search(
+                Fen.parse("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3"), Search.Limits.ofDepth(3));
+        Assertions.assertEquals(0, mated.move());
+        Assertions.assertNull(mated.chessMove());
+        Assertions.assertEquals(-Search.MATE, mated.score());
+
+        Search.Result stalemated = new Search().search(Fen.parse("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1"), Search.Limits.ofDepth(3));
+        Assertions.assertEquals(0, stalemated.move());
+        Assertions.assertEquals(0, stalemated.score());
+    }
+
+    @Test
+    public void leavesTheGameUntouched() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+        String fen = game.toFen();
+        int[] history = game.getMoveHistory();
+
+        new Search().search(game, Search.Limits.ofDepth(4));
+
+        Assertions.assertEquals(fen, game.toFen());
+        Assertions.assertArrayEquals(history, game.getMoveHistory());
+    }
+
+    @Test
+    public void nodeLimitStopsWithALegalMove() {
+        ChessGame game = Fen.parse(Perft.REFERENCE_POSITIONS.get(1).fen());
+        Search.Result result = new Search().search(game, Search.Limits.ofNodes(5_000));
+
+        Assertions.assertTrue(result.nodes() <= 5_000);
+        Assertions.assertTrue(game.validMoves(ChessPosition.ofSquare(PackedMove.from(result.move())))
+                .contains(result.chessMove()));
+    }
+
+    @Test
+    public void timeLimitIsKept() {
+        long start = System.nanoTime();
+        Search.Result result = new Search().search(new ChessGame(), Search.Limits.ofMillis(100));
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        Assertions.assertNotEquals(0, result.move());
+        Assertions.assertTrue(millis < 1_000, "took " + millis + " ms");
+    }
+}
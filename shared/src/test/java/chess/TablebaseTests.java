@@ -0,0 +1,154 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class TablebaseTests {
+    @TempDir
+    static Path directory;
+
+    @BeforeAll
+    public static void generate() throws IOException {
+        TablebaseGenerator.generateBasicEndgames(directory);
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = ';', value = {
+            "KQvK; 19",
+            "KRvK; 31"
+    })
+    public void longestMatesMatchTheKnownLengths(String signature, int plies) throws IOException {
+        try (Tablebase tablebase = new Tablebase(directory, 16)) {
+            byte[] entries = TablebaseGenerator.generate(signature, tablebase);
+            int longest = 0;
+            for (byte entry : entries) {
+                int value = entry & 0xFF;
+                if (value != Tablebase.ILLEGAL && value < Tablebase.LOSS) {
+                    longest = Math.max(longest, value);
+                }
+            }
+            Assertions.assertEquals(plies, longest);
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = ';', value = {
+            "4k3/8/4K3/4P3/8/8/8/8 w - - 0 1; WIN",
+            "4k3/8/4K3/4P3/8/8/8/8 b - - 0 1; LOSS",
+            "8/8/8/8/8/8/4Pk2/7K b - - 0 1; DRAW",
+            "8/8/8/8/8/4k3/8/4K3 w - - 0 1; DRAW",
+            "k7/8/1QK5/8/8/8/8/8 b - - 0 1; DRAW",
+            "k7/1Q6/1K6/8/8/8/8/8 b - - 0 1; LOSS",
+            "8/8/8/8/8/8/8/KRk5 b - - 0 1; LOSS"
+    })
+    public void probesGiveTheOutcome(String fen, Tablebase.Outcome outcome) throws IOException {
+        try (Tablebase tablebase = new Tablebase(directory, 16)) {
+            Tablebase.Probe probe = tablebase.probe(Fen.parse(fen));
+            Assertions.assertNotNull(probe);
+            Assertions.assertEquals(outcome, probe.outcome());
+        }
+    }
+
+    @Test
+    public void mateIsZeroPliesAway() throws IOException {
+        try (Tablebase tablebase = new Tablebase(directory, 16)) {
+            Assertions.assertEquals(new Tablebase.Probe(Tablebase.Outcome.LOSS, 0),
+                    tablebase.probe(Fen.parse("k7/1Q6/1K6/8/8/8/8/8 b - - 0 1")));
+            Assertions.assertEquals(new Tablebase.Probe(Tablebase.Outcome.WIN, 1),
+                    tablebase.probe(Fen.parse("k7/8/1K6/8/8/8/8/2Q5 w - - 0 1")));
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = ';', value = {
+            "8/8/3k4/8/8/8/2R5/4K3 w - - 0 1",
+            "8/8/8/8/2k5/8/3KP3/8 w - - 0 1",
+            "8/8/8/8/2k5/8/3KP3/8 b - - 0 1",
+            "7k/8/8/8/8/8/8/Q3K3 b - - 0 1"
+    })
+    public void colourReversedPositionsProbeTheSame(String fen) throws IOException {
+        try (Tablebase tablebase = new Tablebase(directory, 16)) {
+            Assertions.assertEquals(tablebase.probe(Fen.parse(fen)), tablebase.probe(Fen.parse(reverseColours(fen))));
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = ';', value = {
+            "8/8/3k4/8/8/8/2R5/4K3 w - - 0 1",
+            "8/8/8/8/2k5/8/3KP3/8 w - - 0 1",
+            "8/8/8/3k4/8/8/8/K6q w - - 0 1"
+    })
+    public void bestMovesMateInTheProbedNumberOfPlies(String fen) throws IOException {
+        try (Tablebase tablebase = new Tablebase(directory, 4)) {
+            ChessGame game = Fen.parse(fen);
+            Tablebase.Probe probe = tablebase.probe(game);
+            Assertions.assertNotEquals(Tablebase.Outcome.DRAW, probe.outcome());
+            for (int plies = probe.plies(); plies > 0; plies--) {
+                Tablebase.BestMove best = tablebase.bestMove(game);
+                Assertions.assertEquals(plies, best.probe().plies(), game.toFen());
+                game.doMove(best.move());
+            }
+            Assertions.assertTrue(game.isInCheckmate(game.getTeamTurn()), game.toFen());
+            Assertions.assertTrue(tablebase.cacheMisses() > 0);
+        }
+    }
+
+    @Test
+    public void uncoveredPositionsAreNotProbed() throws IOException {
+        try (Tablebase tablebase = new Tablebase(directory, 16)) {
+            Assertions.assertEquals(3, tablebase.size());
+            Assertions.assertTrue(tablebase.contains("KvKR"));
+            Assertions.assertNull(tablebase.probe(new ChessGame()));
+            Assertions.assertNull(tablebase.probe(Fen.parse("8/8/8/8/8/8/8/R3K2k w Q - 0 1")));
+            Assertions.assertNull(tablebase.probe(Fen.parse("8/8/8/8/8/2k5/8/KBN5 w - - 0 1")));
+        }
+    }
+
+    @Test
+    public void searchAnswersFromTheTables() throws IOException {
+        try (Tablebase tablebase = new Tablebase(directory, 16)) {
+            Search search = new Search(new TranspositionTable(1), new PawnHashTable(1), tablebase);
+            Search.Result result = search.search(Fen.parse("8/8/3k4/8/8/8/2R5/4K3 w - - 0 1"), Search.Limits.ofDepth(20));
+            Assertions.assertTrue(result.isMate());
+            Assertions.assertEquals(0, result.nodes());
+            Assertions.assertEquals(Search.MATE - tablebase.probe(Fen.parse("8/8/3k4/8/8/8/2R5/4K3 w - - 0 1")).plies(),
+                    result.score());
+        }
+    }
+
+    @Test
+    public void corruptFilesAreRejected(@TempDir Path other) throws IOException {
+        Files.write(other.resolve("KQvK.ctb"), new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new Tablebase(other, 16));
+    }
+
+    @Test
+    public void onlySmallTablesAreGenerated() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TablebaseGenerator.generate("KRvKN", null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TablebaseGenerator.generate("QvK", null));
+    }
+
+    // The same position with the board turned round: ranks reversed, colours and side to move swapped
+    private static String reverseColours(String fen) {
+        String[] fields = fen.split(" ");
+        String[] ranks = fields[0].split("/");
+        StringBuilder placement = new StringBuilder();
+        for (int i = ranks.length - 1; i >= 0; i--) {
+            for (char c : ranks[i].toCharArray()) {
+                placement.append(Character.isUpperCase(c) ? Character.toLowerCase(c) : Character.toUpperCase(c));
+            }
+            if (i > 0) {
+                placement.append('/');
+            }
+        }
+        return placement + " " + (fields[1].equals("w") ? "b" : "w") + " - - 0 1";
+    }
+}
@@ -0,0 +1,125 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TranspositionTableTests {
+
+    @Test
+    public void storedEntryComesBack() {
+        TranspositionTable table = new TranspositionTable(1);
+        int move = PackedMove.of(12, 28);
+        table.store(0x1234_5678_9ABC_DEF0L, move, -150, 7, TranspositionTable.BOUND_LOWER, 3);
+
+        long data = table.probe(0x1234_5678_9ABC_DEF0L);
+        Assertions.assertEquals(move, TranspositionTable.move(data));
+        Assertions.assertEquals(-150, TranspositionTable.score(data, 3));
+        Assertions.assertEquals(7, TranspositionTable.depth(data));
+        Assertions.assertEquals(TranspositionTable.BOUND_LOWER, TranspositionTable.bound(data));
+        Assertions.assertEquals(0, table.probe(0x1234_5678_9ABC_DEF1L));
+    }
+
+    @Test
+    public void mateScoresAreRelativeToThePosition() {
+        TranspositionTable table = new TranspositionTable(1);
+        // Mate in 5 plies from the root, found at ply 2: mate in 3 from the stored position
+        table.store(42L, 0, Search.MATE - 5, 4, TranspositionTable.BOUND_EXACT, 2);
+
+        long data = table.probe(42L);
+        Assertions.assertEquals(Search.MATE - 5, TranspositionTable.score(data, 2));
+        Assertions.assertEquals(Search.MATE - 7, TranspositionTable.score(data, 4));
+    }
+
+    @Test
+    public void restoringWithoutAMoveKeepsTheOldOne() {
+        TranspositionTable table = new TranspositionTable(1);
+        int move = PackedMove.of(1, 18);
+        table.store(99L, move, 20, 3, TranspositionTable.BOUND_EXACT, 0);
+        table.store(99L, 0, -40, 5, TranspositionTable.BOUND_UPPER, 0);
+
+        long data = table.probe(99L);
+        Assertions.assertEquals(move, TranspositionTable.move(data));
+        Assertions.assertEquals(5, TranspositionTable.depth(data));
+    }
+
+    @Test
+    public void shallowerEntryIsReplacedFirst() {
+        TranspositionTable table = new TranspositionTable(1);
+        long stride = table.capacity() / 2;
+        // Three keys landing in the same bucket
+        table.store(1L, 0, 0, 9, TranspositionTable.BOUND_EXACT, 0);
+        table.store(1L + stride, 0, 0, 2, TranspositionTable.BOUND_EXACT, 0);
+        table.store(1L + 2 * stride, 0, 0, 4, TranspositionTable.BOUND_EXACT, 0);
+
+        Assertions.assertNotEquals(0, table.probe(1L));
+        Assertions.assertEquals(0, table.probe(1L + stride));
+        Assertions.assertNotEquals(0, table.probe(1L + 2 * stride));
+    }
+
+    @Test
+    public void olderSearchesAreReplacedFirst() {
+        TranspositionTable table = new TranspositionTable(1);
+        long stride = table.capacity() / 2;
+        table.store(1L, 0, 0, 9, TranspositionTable.BOUND_EXACT, 0);
+        table.newSearch();
+        table.newSearch();
+        table.store(1L + stride, 0, 0, 2, TranspositionTable.BOUND_EXACT, 0);
+        table.store(1L + 2 * stride, 0, 0, 2, TranspositionTable.BOUND_EXACT, 0);
+
+        Assertions.assertEquals(0, table.probe(1L));
+    }
+
+    @Test
+    public void sizeIsAPowerOfTwoWithinTheBudget() {
+        TranspositionTable table = new TranspositionTable(3);
+        Assertions.assertEquals(1 << 17, table.capacity());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(0));
+    }
+
+    // Every thread stores entries whose data is derived from the key; a torn entry
+    // would show up as data that doesn't match the key it was found under
+    @Test
+    public void concurrentWritersNeverProduceAMismatchedEntry() throws InterruptedException {
+        TranspositionTable table = new TranspositionTable(1);
+        AtomicInteger mismatches = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            SplittableRandom random = new SplittableRandom(t);
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 500_000; i++) {
+                    // Few distinct keys, so threads keep colliding on the same buckets
+                    long key = random.nextLong(4096) * 0x9E37_79B9_7F4A_7C15L;
+                    long data = table.probe(key);
+                    if (data != 0 && TranspositionTable.move(data) != (int) (key >>> 48)) {
+                        mismatches.incrementAndGet();
+                    }
+                    table.store(key, (int) (key >>> 48), 0, random.nextInt(20), TranspositionTable.BOUND_EXACT, 0);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assertions.assertEquals(0, mismatches.get());
+    }
+
+    @Test
+    public void sharedTableCarriesResultsBetweenSearches() {
+        TranspositionTable table = new TranspositionTable(4);
+        ChessGame game = Fen.parse(Perft.REFERENCE_POSITIONS.get(1).fen());
+        Search.Result first = new Search(table).search(game, Search.Limits.ofDepth(5));
+        Search.Result second = new Search(table).search(game, Search.Limits.ofDepth(5));
+
+        Assertions.assertEquals(first.move(), second.move());
+        Assertions.assertTrue(second.nodes() < first.nodes() / 2,
+                "second search took " + second.nodes() + " nodes, first " + first.nodes());
+    }
+}